@@ -68,25 +68,8 @@ public abstract class AnnotationHandler<T extends Annotation> {
 
     static Object handle(StaplerRequest request, Annotation[] annotations, String parameterName, Class targetType) throws ServletException {
         for (Annotation a : annotations) {
-            Class<? extends Annotation> at = a.annotationType();
-            AnnotationHandler h = HANDLERS.get(at);
-            if (h==null) {
-                InjectedParameter ip = at.getAnnotation(InjectedParameter.class);
-                if (ip!=null) {
-                    try {
-                        h = ip.value().newInstance();
-                    } catch (InstantiationException e) {
-                        throw new ServletException("Failed to instantiate parameter injector for "+at,e);
-                    } catch (IllegalAccessException e) {
-                        throw new ServletException("Failed to instantiate parameter injector for "+at,e);
-                    }
-                } else {
-                    h = NOT_HANDLER;
-                }
-                AnnotationHandler prev = HANDLERS.putIfAbsent(at, h);
-                if (prev!=null) h=prev;
-            }
-            if (h==NOT_HANDLER)
+            AnnotationHandler h = get(a.annotationType());
+            if (h==null)
                 continue;
             return h.parse(request,a,targetType,parameterName);
         }
@@ -94,6 +77,30 @@ public abstract class AnnotationHandler<T extends Annotation> {
         return null; // probably we should report an error
     }
 
+    /**
+     * Gets the handler for the given annotation type, or null if it's not an {@link InjectedParameter} annotation.
+     */
+    static AnnotationHandler get(Class<? extends Annotation> at) throws ServletException {
+        AnnotationHandler h = HANDLERS.get(at);
+        if (h==null) {
+            InjectedParameter ip = at.getAnnotation(InjectedParameter.class);
+            if (ip!=null) {
+                try {
+                    h = ip.value().newInstance();
+                } catch (InstantiationException e) {
+                    throw new ServletException("Failed to instantiate parameter injector for "+at,e);
+                } catch (IllegalAccessException e) {
+                    throw new ServletException("Failed to instantiate parameter injector for "+at,e);
+                }
+            } else {
+                h = NOT_HANDLER;
+            }
+            AnnotationHandler prev = HANDLERS.putIfAbsent(at, h);
+            if (prev!=null) h=prev;
+        }
+        return h==NOT_HANDLER ? null : h;
+    }
+
     private static final ConcurrentMap<Class<? extends Annotation>,AnnotationHandler> HANDLERS = new ConcurrentHashMap<Class<? extends Annotation>, AnnotationHandler>();
 
     private static final AnnotationHandler NOT_HANDLER = new AnnotationHandler() {
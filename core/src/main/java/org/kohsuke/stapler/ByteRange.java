@@ -0,0 +1,149 @@
+package org.kohsuke.stapler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A range of bytes requested by the {@code Range} header, as in
+ * <a href="https://www.rfc-editor.org/rfc/rfc7233">RFC 7233</a>.
+ */
+final class ByteRange {
+    /**
+     * The first byte, inclusive.
+     */
+    final long start;
+    /**
+     * The last byte, exclusive.
+     */
+    final long end;
+
+    ByteRange(long start, long end) {
+        this.start = start;
+        this.end = end;
+    }
+
+    long length() {
+        return end-start;
+    }
+
+    /**
+     * Value of the {@code Content-Range} header for this range.
+     */
+    String toContentRange(long contentLength) {
+        return "bytes "+start+'-'+(end-1)+'/'+contentLength;    // end is inclusive.
+    }
+
+    @Override
+    public String toString() {
+        return start+"-"+end;
+    }
+
+    /**
+     * Parses the value of the {@code Range} header, such as "bytes=0-499", "bytes=500-", "bytes=-500",
+     * or "bytes=0-0,-1".
+     *
+     * @return
+     *      null if the header is to be ignored and the whole content sent, because the unit isn't bytes,
+     *      the header is malformed, or there are too many ranges.
+     *      An empty list if none of the ranges can be satisfied.
+     *      Otherwise the ranges to send, sorted and with the overlapping ones merged,
+     *      so that the content can be read from front to back.
+     */
+    static List<ByteRange> parse(String header, long contentLength) {
+        if (!header.regionMatches(true, 0, "bytes=", 0, 6))
+            return null;
+
+        List<ByteRange> ranges = new ArrayList<ByteRange>();
+        int specs = 0;
+        for (String spec : header.substring(6).split(",")) {
+            spec = spec.trim();
+            if (spec.length()==0)
+                continue;   // the grammar allows empty list elements
+            if (++specs>MAX_RANGES)
+                return null;
+
+            int dash = spec.indexOf('-');
+            if (dash<0)
+                return null;
+            long first = parsePosition(spec.substring(0, dash).trim());
+            long last = parsePosition(spec.substring(dash+1).trim());
+
+            long s, e;
+            if (first==NONE) {
+                // "-N" means the last N bytes
+                if (last==NONE || last==INVALID)
+                    return null;
+                s = Math.max(0, contentLength-last);
+                e = contentLength;
+            } else {
+                if (first==INVALID || last==INVALID)
+                    return null;
+                if (last==NONE) {
+                    e = contentLength; // all the way to the end
+                } else {
+                    if (last<first)
+                        return null;
+                    e = last==Long.MAX_VALUE ? last : last+1;
+                }
+                s = first;
+                e = Math.min(e, contentLength);
+            }
+            if (s<e)
+                ranges.add(new ByteRange(s, e));
+            // otherwise this one starts past the end, so there's nothing to send for it
+        }
+        if (specs==0)
+            return null;
+
+        Collections.sort(ranges, BY_START);
+        List<ByteRange> merged = new ArrayList<ByteRange>(ranges.size());
+        for (ByteRange r : ranges) {
+            ByteRange last = merged.isEmpty() ? null : merged.get(merged.size()-1);
+            if (last!=null && r.start<=last.end)
+                merged.set(merged.size()-1, new ByteRange(last.start, Math.max(last.end, r.end)));
+            else
+                merged.add(r);
+        }
+        return merged;
+    }
+
+    /**
+     * Parses a byte position, which is all digits.
+     *
+     * @return
+     *      {@link #NONE} if empty, {@link #INVALID} if not a number. Positions too big for a long are
+     *      {@link Long#MAX_VALUE}, which is past the end of anything we serve anyway.
+     */
+    private static long parsePosition(String s) {
+        if (s.length()==0)
+            return NONE;
+        long v = 0;
+        for (int i=0; i<s.length(); i++) {
+            char ch = s.charAt(i);
+            if (ch<'0' || '9'<ch)
+                return INVALID;
+            if (v>(Long.MAX_VALUE-(ch-'0'))/10)
+                v = Long.MAX_VALUE;
+            else
+                v = v*10+(ch-'0');
+        }
+        return v;
+    }
+
+    private static final long NONE = -1;
+    private static final long INVALID = -2;
+
+    /**
+     * Requests with more ranges than this are served in full, so that a request can't make us
+     * send lots of tiny parts.
+     */
+    /*package*/ static final int MAX_RANGES = 64;
+
+    private static final Comparator<ByteRange> BY_START = new Comparator<ByteRange>() {
+        public int compare(ByteRange o1, ByteRange o2) {
+            return Long.compare(o1.start, o2.start);
+        }
+    };
+}
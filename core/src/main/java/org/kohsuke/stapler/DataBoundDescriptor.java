@@ -0,0 +1,329 @@
+package org.kohsuke.stapler;
+
+import com.google.common.primitives.Primitives;
+import org.kohsuke.stapler.lang.Klass;
+import org.kohsuke.stapler.lang.MethodRef;
+
+import javax.annotation.PostConstruct;
+import java.beans.Introspector;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Data binding metadata of a class, as used by {@link StaplerRequest#bindJSON(Class, net.sf.json.JSONObject)}
+ * and {@link StaplerRequest#bindParameters(Class, String)}.
+ *
+ * <p>
+ * Figuring out the {@link DataBoundConstructor} parameter names may require parsing the class file or
+ * reading the {@code .stapler} file, and the {@link DataBoundSetter}s are found by walking the class hierarchy,
+ * so we do this once per class and remember the result. Since the descriptor hangs off the {@link Class}
+ * object itself, it goes away together with the class loader.
+ */
+final class DataBoundDescriptor {
+    final Class<?> type;
+
+    /**
+     * The {@link DataBoundConstructor} and its parameter names,
+     * or null if this class cannot be instantiated through data binding.
+     */
+    private final Constructor<?> constructor;
+    private final String[] names;
+    private final Class<?>[] types;
+    private final Type[] genericTypes;
+
+    /**
+     * {@link #constructor} adapted to take an {@code Object[]}, or null if that's not possible.
+     */
+    private final MethodHandle constructorHandle;
+
+    /**
+     * If {@link #constructor} is null, the reason why.
+     */
+    private final IllegalArgumentException failure;
+
+    /**
+     * Property names that are injected through the constructor, and therefore excluded from setter injection.
+     */
+    private final Set<String> constructorParams;
+
+    /**
+     * {@link DataBoundSetter} fields and methods keyed by the property name.
+     * Fields take precedence over methods, and subtypes over base types.
+     */
+    private final Map<String,Setter> setters;
+
+    /**
+     * {@link PostConstruct} methods, linked to those of the base class.
+     *
+     * @see MetaClass#getPostConstructMethods()
+     */
+    final SingleLinkedList<MethodRef> postConstructMethods;
+
+    private DataBoundDescriptor(Class<?> type) {
+        this.type = type;
+
+        Constructor<?> c = null;
+        String[] names = null;
+        IllegalArgumentException failure = null;
+        try {
+            names = new ClassDescriptor(type).loadConstructorParamNames();
+            c = findConstructor(type, names.length);
+        } catch (IllegalArgumentException e) {
+            failure = e;
+            names = null;
+        }
+        this.constructor = c;
+        this.names = names;
+        this.failure = failure;
+        this.types = c!=null ? c.getParameterTypes() : null;
+        this.genericTypes = c!=null ? c.getGenericParameterTypes() : null;
+        this.constructorHandle = c!=null ? adapt(c) : null;
+        this.constructorParams = names!=null ? new HashSet<>(Arrays.asList(names)) : Collections.<String>emptySet();
+
+        Map<String,Setter> fields = new HashMap<>();
+        Map<String,Setter> methods = new HashMap<>();
+        for (Class<?> t=type; t!=null; t=t.getSuperclass()) {
+            for (Field f : t.getDeclaredFields()) {
+                if (f.isAnnotationPresent(DataBoundSetter.class) && !fields.containsKey(f.getName())) {
+                    f.setAccessible(true);
+                    fields.put(f.getName(), new Setter(f));
+                }
+            }
+            for (Method m : t.getDeclaredMethods()) {
+                // only invoking public methods for security reasons
+                if (!Modifier.isPublic(m.getModifiers())
+                 || !m.getName().startsWith("set")
+                 || m.getParameterTypes().length!=1
+                 || !m.isAnnotationPresent(DataBoundSetter.class))
+                    continue;
+
+                String propertyName = Introspector.decapitalize(m.getName().substring(3));
+                if (!methods.containsKey(propertyName))
+                    methods.put(propertyName, new Setter(m));
+            }
+        }
+        methods.putAll(fields);
+        this.setters = methods;
+
+        this.postConstructMethods = findPostConstructMethods(type);
+    }
+
+    /**
+     * Gets the parameter names of the {@link DataBoundConstructor}, in the order of the parameters.
+     *
+     * @throws NoStaplerConstructorException
+     *      if there's no {@link DataBoundConstructor}
+     */
+    String[] getConstructorParamNames() {
+        checkConstructor();
+        return names;
+    }
+
+    Constructor<?> getConstructor() {
+        checkConstructor();
+        return constructor;
+    }
+
+    Class<?>[] getConstructorParamTypes() {
+        checkConstructor();
+        return types;
+    }
+
+    Type[] getConstructorGenericParamTypes() {
+        checkConstructor();
+        return genericTypes;
+    }
+
+    /**
+     * Is the given property set through the constructor?
+     */
+    boolean isConstructorParam(String name) {
+        return constructorParams.contains(name);
+    }
+
+    /**
+     * Invokes the {@link DataBoundConstructor}.
+     *
+     * @throws InvocationTargetException
+     *      if the constructor throws an exception.
+     * @throws IllegalArgumentException
+     *      if the arguments don't match the parameters.
+     */
+    Object newInstance(Object[] args) throws InstantiationException, IllegalAccessException, InvocationTargetException {
+        checkConstructor();
+        if (constructorHandle==null || !isAssignable(types, args))
+            // let reflection report the problem, or deal with what we couldn't adapt
+            return constructor.newInstance(args);
+        try {
+            return (Object) constructorHandle.invokeExact(args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /**
+     * Finds the {@link DataBoundSetter} field or method for the given property name, or null.
+     */
+    Setter getSetter(String name) {
+        return setters.get(name);
+    }
+
+    /**
+     * {@link DataBoundSetter} field or method, compiled into a {@link MethodHandle}.
+     */
+    static final class Setter {
+        final Type genericType;
+        final Class<?> type;
+        /**
+         * {@link Field} or {@link Method}.
+         */
+        private final Member member;
+        /**
+         * Takes the bean and the value, or null if we couldn't adapt it.
+         */
+        private final MethodHandle handle;
+
+        private Setter(Field f) {
+            this.genericType = f.getGenericType();
+            this.type = f.getType();
+            this.member = f;
+            MethodHandle h;
+            try {
+                h = MethodHandles.lookup().unreflectSetter(f).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                h = null;
+            }
+            this.handle = h;
+        }
+
+        private Setter(Method m) {
+            this.genericType = m.getGenericParameterTypes()[0];
+            this.type = m.getParameterTypes()[0];
+            this.member = m;
+            MethodHandle h;
+            try {
+                h = MethodHandles.publicLookup().unreflect(m).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                h = null;
+            }
+            this.handle = h;
+        }
+
+        void set(Object bean, Object value) throws IllegalAccessException, InvocationTargetException {
+            if (handle==null || !isAssignable(type, value)) {
+                // let reflection report the problem, or deal with what we couldn't adapt
+                if (member instanceof Field)
+                    ((Field) member).set(bean, value);
+                else
+                    ((Method) member).invoke(bean, value);
+                return;
+            }
+            try {
+                handle.invokeExact(bean, value);
+            } catch (Throwable t) {
+                throw new InvocationTargetException(t);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return member.toString();
+        }
+
+        private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+    }
+
+    private static MethodHandle adapt(Constructor<?> c) {
+        if (Modifier.isAbstract(c.getDeclaringClass().getModifiers()))
+            return null;    // reflection will report the problem
+        try {
+            return MethodHandles.publicLookup().unreflectConstructor(c)
+                    .asFixedArity()
+                    .asSpreader(Object[].class, c.getParameterTypes().length)
+                    .asType(CONSTRUCTOR_TYPE);
+        } catch (IllegalAccessException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Can the value be passed as-is to the parameter of the given type, without any conversion?
+     */
+    private static boolean isAssignable(Class<?> type, Object value) {
+        if (type.isPrimitive())
+            return value!=null && Primitives.wrap(type)==value.getClass();
+        return value==null || type.isInstance(value);
+    }
+
+    private static boolean isAssignable(Class<?>[] types, Object[] args) {
+        if (types.length!=args.length)  return false;
+        for (int i=0; i<types.length; i++)
+            if (!isAssignable(types[i], args[i]))
+                return false;
+        return true;
+    }
+
+    private void checkConstructor() {
+        if (constructor==null) {
+            // throw a new exception so that the stack trace reflects the caller
+            if (failure instanceof NoStaplerConstructorException)
+                throw new NoStaplerConstructorException(failure.getMessage(), failure);
+            throw new IllegalArgumentException(failure.getMessage(), failure);
+        }
+    }
+
+    private static Constructor<?> findConstructor(Class<?> type, int length) {
+        Constructor<?>[] ctrs = type.getConstructors();
+        // one with DataBoundConstructor is the most reliable
+        for (Constructor<?> c : ctrs) {
+            if(c.getAnnotation(DataBoundConstructor.class)!=null) {
+                if(c.getParameterTypes().length!=length)
+                    throw new IllegalArgumentException(c+" has @DataBoundConstructor but it doesn't match with your .stapler file. Try clean rebuild");
+                return c;
+            }
+        }
+        // if not, maybe this was from @stapler-constructor,
+        // so look for the constructor with the expected argument length.
+        // this is not very reliable.
+        for (Constructor<?> c : ctrs) {
+            if(c.getParameterTypes().length==length)
+                return c;
+        }
+        throw new IllegalArgumentException(type+" does not have a constructor with "+length+" arguments");
+    }
+
+    /**
+     * Same as {@link MetaClass#getPostConstructMethods()}, without needing a {@link WebApp}.
+     */
+    private static SingleLinkedList<MethodRef> findPostConstructMethods(Class<?> type) {
+        if (type==null)     return SingleLinkedList.empty();
+        return MetaClass.growPostConstructMethods(findPostConstructMethods(type.getSuperclass()), Klass.java(type));
+    }
+
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object[].class);
+
+    static DataBoundDescriptor get(Class<?> type) {
+        return DESCRIPTORS.get(type);
+    }
+
+    private static final ClassValue<DataBoundDescriptor> DESCRIPTORS = new ClassValue<DataBoundDescriptor>() {
+        @Override
+        protected DataBoundDescriptor computeValue(Class<?> type) {
+            return new DataBoundDescriptor(type);
+        }
+    };
+}
@@ -72,12 +72,35 @@ public abstract class Dispatcher {
     }
 
     public static void anonymizedTraceEval(StaplerRequest req, StaplerResponse rsp, Object node, String format, String... args) {
+        if (!EvaluationTrace.ApplicationTracer.isActive())
+            return;
         List<String> arg = new ArrayList<>();
-        arg.add(node == null ? "(null)" : node.getClass().getName());
+        arg.add(anonymizedName(node));
         arg.addAll(Arrays.asList(args));
         EvaluationTrace.ApplicationTracer.trace(req, String.format(format, arg.toArray()));
     }
 
+    // fixed arity overloads of the above, so that the common no-tracer case doesn't even allocate the varargs array
+
+    public static void anonymizedTraceEval(StaplerRequest req, StaplerResponse rsp, Object node, String format) {
+        if (EvaluationTrace.ApplicationTracer.isActive())
+            EvaluationTrace.ApplicationTracer.trace(req, String.format(format, anonymizedName(node)));
+    }
+
+    public static void anonymizedTraceEval(StaplerRequest req, StaplerResponse rsp, Object node, String format, String arg) {
+        if (EvaluationTrace.ApplicationTracer.isActive())
+            EvaluationTrace.ApplicationTracer.trace(req, String.format(format, anonymizedName(node), arg));
+    }
+
+    public static void anonymizedTraceEval(StaplerRequest req, StaplerResponse rsp, Object node, String format, String arg1, String arg2) {
+        if (EvaluationTrace.ApplicationTracer.isActive())
+            EvaluationTrace.ApplicationTracer.trace(req, String.format(format, anonymizedName(node), arg1, arg2));
+    }
+
+    private static String anonymizedName(Object node) {
+        return node == null ? "(null)" : node.getClass().getName();
+    }
+
     public static void traceEval(StaplerRequest req, StaplerResponse rsp, Object node, String prefix, String suffix) {
         trace(req,rsp,String.format("-> evaluate(%s<%s>%s,\"%s\")",
                 prefix,node,suffix,
@@ -0,0 +1,138 @@
+package org.kohsuke.stapler;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Snapshot of {@link MetaClass#dispatchers} indexed by the URL token that {@link NameBasedDispatcher}s react to.
+ *
+ * <p>
+ * A {@link NameBasedDispatcher} never handles a request unless the next token is its name, so for any given
+ * token the only dispatchers worth trying are those with that name plus all the dispatchers that aren't name based
+ * (views, index pages, array/map look-up, {@code getDynamic}, etc.) This class precomputes that list for every name,
+ * in the same relative order as {@link MetaClass#dispatchers}, so that resolving a token is a hash look-up
+ * instead of a linear scan, while the precedence stays exactly the same.
+ *
+ * @see MetaClass#getDispatcherIndex()
+ */
+final class DispatcherIndex {
+    /**
+     * All the dispatchers, in the order of preference.
+     */
+    private final Dispatcher[] all;
+
+    /**
+     * Indices into {@link #all} of dispatchers that are not {@link NameBasedDispatcher}s.
+     * Used when the next token doesn't match any name, or when there's no more token.
+     */
+    private final int[] fallback;
+
+    /**
+     * From a token to indices into {@link #all} of the dispatchers to try, in the order of preference.
+     */
+    private final Map<String,int[]> byName;
+
+    /**
+     * {@link Tracked#modCount()} at the time this index was built.
+     */
+    private final int modCount;
+
+    DispatcherIndex(Tracked dispatchers) {
+        this.modCount = dispatchers.modCount();
+        this.all = dispatchers.toArray(new Dispatcher[0]);
+
+        List<Integer> fallback = new ArrayList<>();
+        Map<String,List<Integer>> byName = new HashMap<>();
+        for (int i=0; i<all.length; i++) {
+            Dispatcher d = all[i];
+            if (d instanceof NameBasedDispatcher) {
+                List<Integer> l = byName.get(((NameBasedDispatcher) d).name);
+                if (l==null)
+                    byName.put(((NameBasedDispatcher) d).name, l = new ArrayList<>(fallback));
+                l.add(i);
+            } else {
+                fallback.add(i);
+                for (List<Integer> l : byName.values())
+                    l.add(i);
+            }
+        }
+
+        this.fallback = toArray(fallback);
+        this.byName = new HashMap<>(byName.size()*2);
+        for (Map.Entry<String,List<Integer>> e : byName.entrySet())
+            this.byName.put(e.getKey(), toArray(e.getValue()));
+    }
+
+    /**
+     * Is this index still in sync with the given list?
+     */
+    boolean isUpToDate(Tracked dispatchers) {
+        return modCount==dispatchers.modCount();
+    }
+
+    /**
+     * Tries dispatchers that can react to the current token in the order of preference.
+     *
+     * @return
+     *      the dispatcher that handled the request, or null if none did.
+     */
+    Dispatcher dispatch(RequestImpl req, ResponseImpl rsp, Object node)
+            throws IOException, ServletException, IllegalAccessException, InvocationTargetException {
+        TokenList tokens = req.tokens;
+        int[] candidates = null;
+        if (tokens.hasMore())
+            candidates = byName.get(tokens.peek());
+        if (candidates==null)
+            candidates = fallback;
+
+        final int idx = tokens.idx;
+        for (int i : candidates) {
+            Dispatcher d = all[i];
+            if (d.dispatch(req,rsp,node))
+                return d;
+            if (tokens.idx!=idx) {
+                // a dispatcher moved the cursor without handling the request, so the token we looked up by no longer applies.
+                // continue exactly the way a linear scan would.
+                for (int j=i+1; j<all.length; j++) {
+                    if (all[j].dispatch(req,rsp,node))
+                        return all[j];
+                }
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static int[] toArray(List<Integer> l) {
+        int[] r = new int[l.size()];
+        for (int i=0; i<r.length; i++)
+            r[i] = l.get(i);
+        return r;
+    }
+
+    /**
+     * {@link ArrayList} that lets {@link DispatcherIndex} tell whether it has been modified since the index was built.
+     *
+     * {@link MetaClass#dispatchers} is a public mutable list that {@link Facet}s, {@link DispatchersFilter}s
+     * and rebuilds all write to, so we need to notice changes made after the fact.
+     */
+    static final class Tracked extends ArrayList<Dispatcher> {
+        int modCount() {
+            return modCount;
+        }
+
+        @Override
+        public Dispatcher set(int index, Dispatcher element) {
+            // ArrayList doesn't count replacement as a structural modification, but for us it is
+            modCount++;
+            return super.set(index, element);
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+}
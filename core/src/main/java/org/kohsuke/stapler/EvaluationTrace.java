@@ -72,22 +72,38 @@ public class EvaluationTrace {
         protected abstract void record(StaplerRequest req, String message);
 
         public static void trace(StaplerRequest req, String message) {
-            List<ApplicationTracer> tracers = getTracers();
-            for (ApplicationTracer tracer : tracers) {
+            for (ApplicationTracer tracer : getTracers()) {
                 tracer.record(req, message);
             }
         }
 
-        private static volatile List<ApplicationTracer> tracers;
+        /**
+         * Returns true if there's any {@link ApplicationTracer} to report to.
+         *
+         * Callers should check this before building trace messages, so that the common case
+         * of having no tracer at all doesn't cost anything.
+         */
+        /*package*/ static boolean isActive() {
+            return getTracers().length > 0;
+        }
+
+        /**
+         * Loaded once and never modified afterward.
+         */
+        private static volatile ApplicationTracer[] tracers;
 
         @Nonnull
-        private static List<ApplicationTracer> getTracers() {
+        private static ApplicationTracer[] getTracers() {
+            ApplicationTracer[] t = tracers;
+            if (t != null) {
+                return t;
+            }
             synchronized (ApplicationTracer.class) {
                 if (tracers == null) {
-                    List<ApplicationTracer> t = new ArrayList<>();
+                    List<ApplicationTracer> l = new ArrayList<>();
                     for (ApplicationTracer tracer : ServiceLoader.load(EvaluationTrace.ApplicationTracer.class, Stapler.getCurrent().getWebApp().getClassLoader())) {
                         try {
-                            t.add(tracer);
+                            l.add(tracer);
                         } catch (Exception e) {
                             // robustness
                             if (LOGGER.isLoggable(Level.FINE)) {
@@ -95,10 +111,10 @@ public class EvaluationTrace {
                             }
                         }
                     }
-                    tracers = t;
+                    tracers = l.toArray(new ApplicationTracer[0]);
                 }
+                return tracers;
             }
-            return tracers;
         }
     }
 }
@@ -36,6 +36,7 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
 import java.lang.invoke.WrongMethodTypeException;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Executable;
@@ -172,38 +173,20 @@ public abstract class Function {
      * then finally call {@link #invoke}.
      */
     Object bindAndInvoke(Object o, StaplerRequest req, StaplerResponse rsp, Object... headArgs) throws IllegalAccessException, InvocationTargetException, ServletException {
-        Class[] types = getParameterTypes();
-        Annotation[][] annotations = getParameterAnnotations();
-        String[] parameterNames = getParameterNames();
+        ParameterBinder[] binders = getParameterBinders();
 
-        Object[] arguments = new Object[types.length];
+        Object[] arguments = new Object[binders.length];
 
         // fill in the first N arguments
         System.arraycopy(headArgs,0,arguments,0,headArgs.length);
 
         try {
             // find the rest of the arguments. either known types, or with annotations
-            for( int i=headArgs.length; i<types.length; i++ ) {
-                Class t = types[i];
-                if(t==StaplerRequest.class || t==HttpServletRequest.class) {
-                    arguments[i] = req;
-                    continue;
-                }
-                if(t==StaplerResponse.class || t==HttpServletResponse.class) {
-                    arguments[i] = rsp;
-                    continue;
-                }
-
-                // if the databinding method is provided, call that
-                Function binder = PARSE_METHODS.getUnchecked(t);
-                if (binder!=RETURN_NULL) {
-                    arguments[i] = binder.bindAndInvoke(null,req,rsp);
-                    continue;
-                }
-                
-                arguments[i] = AnnotationHandler.handle(req,annotations[i],
-                    i<parameterNames.length ? parameterNames[i] : null,
-                    t);
+            for( int i=headArgs.length; i<binders.length; i++ ) {
+                ParameterBinder b = binders[i];
+                if (b==null)
+                    binders[i] = b = createParameterBinder(i);
+                arguments[i] = b.bind(req,rsp);
             }
         } catch (IllegalArgumentException e) {
             throw new IllegalArgumentException("Failed to invoke "+getDisplayName(),e);
@@ -212,6 +195,83 @@ public abstract class Function {
         return invoke(req, rsp, o,arguments);
     }
 
+    /**
+     * Plan of how to inject each parameter, filled lazily as parameters are needed.
+     * Parameters that are always given by the caller as head arguments never get an entry.
+     *
+     * Parameter types, annotations, and names never change, so there's no point in
+     * looking them and their handlers up again for every invocation.
+     */
+    private volatile ParameterBinder[] parameterBinders;
+
+    private ParameterBinder[] getParameterBinders() {
+        ParameterBinder[] binders = parameterBinders;
+        if (binders==null)
+            parameterBinders = binders = new ParameterBinder[getParameterTypes().length];
+        return binders;
+    }
+
+    private ParameterBinder createParameterBinder(int i) throws ServletException {
+        String[] parameterNames = getParameterNames();
+        return ParameterBinder.of(getParameterTypes()[i], getParameterAnnotations()[i],
+                i<parameterNames.length ? parameterNames[i] : null);
+    }
+
+    /**
+     * Computes the value of one parameter of a {@link Function} from the current request.
+     */
+    private static abstract class ParameterBinder {
+        abstract Object bind(StaplerRequest req, StaplerResponse rsp) throws IllegalAccessException, InvocationTargetException, ServletException;
+
+        static ParameterBinder of(final Class t, Annotation[] annotations, final String parameterName) throws ServletException {
+            if(t==StaplerRequest.class || t==HttpServletRequest.class)
+                return REQUEST;
+            if(t==StaplerResponse.class || t==HttpServletResponse.class)
+                return RESPONSE;
+
+            // if the databinding method is provided, call that
+            final Function binder = PARSE_METHODS.getUnchecked(t);
+            if (binder!=RETURN_NULL) {
+                return new ParameterBinder() {
+                    Object bind(StaplerRequest req, StaplerResponse rsp) throws IllegalAccessException, InvocationTargetException, ServletException {
+                        return binder.bindAndInvoke(null,req,rsp);
+                    }
+                };
+            }
+
+            for (final Annotation a : annotations) {
+                final AnnotationHandler h = AnnotationHandler.get(a.annotationType());
+                if (h!=null) {
+                    return new ParameterBinder() {
+                        Object bind(StaplerRequest req, StaplerResponse rsp) throws ServletException {
+                            return h.parse(req,a,t,parameterName);
+                        }
+                    };
+                }
+            }
+
+            return NULL; // probably we should report an error
+        }
+
+        private static final ParameterBinder REQUEST = new ParameterBinder() {
+            Object bind(StaplerRequest req, StaplerResponse rsp) {
+                return req;
+            }
+        };
+
+        private static final ParameterBinder RESPONSE = new ParameterBinder() {
+            Object bind(StaplerRequest req, StaplerResponse rsp) {
+                return rsp;
+            }
+        };
+
+        private static final ParameterBinder NULL = new ParameterBinder() {
+            Object bind(StaplerRequest req, StaplerResponse rsp) {
+                return null;
+            }
+        };
+    }
+
     /**
      * Computing map that discovers the static 'fromStapler' method from a class.
      * The discovered method will be returned as a Function so that the invocation can do parameter injections.
@@ -307,14 +367,22 @@ public abstract class Function {
 
     public abstract Annotation[] getAnnotations();
 
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
     private abstract static class MethodFunction extends Function {
         protected final Method m;
         private volatile MethodHandle handle;
+        private volatile MethodHandle invoker;
+        /**
+         * Number of arguments {@link #invoker()} takes, including the receiver.
+         */
+        private final int arity;
 
         private volatile String[] names;
 
         public MethodFunction(Method m) {
             this.m = m;
+            this.arity = m.getParameterTypes().length + (Modifier.isStatic(m.getModifiers()) ? 0 : 1);
             // defer the resolution of MethodHandle so that a Function can be built to represent a non-public method
         }
 
@@ -382,6 +450,23 @@ public abstract class Function {
             return handle;
         }
 
+        /**
+         * {@link #handle()} adapted once to the fixed {@code (Object[])Object} shape, where the array holds
+         * all the arguments including the receiver.
+         *
+         * {@link MethodHandle#invokeWithArguments} would redo this adaptation on every call,
+         * whereas this lets us use {@link MethodHandle#invokeExact}.
+         * A variable arity method takes its trailing array as is, like {@link Method#invoke} does.
+         */
+        private MethodHandle invoker() {
+            MethodHandle i = invoker;
+            if (i==null) {
+                MethodHandle h = handle().asFixedArity();
+                invoker = i = h.asSpreader(Object[].class, h.type().parameterCount()).asType(INVOKER_TYPE);
+            }
+            return i;
+        }
+
         @Override
         public Object invoke(StaplerRequest req, StaplerResponse rsp, Object o, Object... args) throws IllegalAccessException, InvocationTargetException {
             Object[] arguments;
@@ -393,9 +478,12 @@ public abstract class Function {
                 System.arraycopy(args, 0, arguments, 1, args.length);
             }
             try {
-                return handle().invokeWithArguments(arguments);
+                if (arguments.length!=arity)   // the spreader would throw IllegalArgumentException
+                    throw new WrongMethodTypeException("expected "+arity+" arguments but got "+arguments.length);
+                MethodHandle i = invoker();
+                return (Object) i.invokeExact(arguments);
             } catch (WrongMethodTypeException x) {
-                LOGGER.log(Level.WARNING, handle + " failed on " + o + "." + m + Arrays.toString(arguments), x);
+                LOGGER.log(Level.WARNING, m + " failed on " + o + Arrays.toString(arguments), x);
             } catch (Throwable throwable) {
                 throw new InvocationTargetException(throwable);
             }
@@ -25,8 +25,8 @@ package org.kohsuke.stapler;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import net.sf.json.JSONArray;
-import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.bind.JavaScriptMethod;
+import org.kohsuke.stapler.json.JsonBodyReader;
 import org.kohsuke.stapler.lang.FieldRef;
 import org.kohsuke.stapler.lang.Klass;
 import org.kohsuke.stapler.lang.MethodRef;
@@ -70,7 +70,12 @@ public class MetaClass extends TearOffSupport {
      */
     public final MetaClassLoader classLoader;
 
-    public final List<Dispatcher> dispatchers = new ArrayList<>();
+    public final List<Dispatcher> dispatchers = new DispatcherIndex.Tracked();
+
+    /**
+     * {@link #dispatchers} indexed by URL token. Rebuilt lazily whenever {@link #dispatchers} changes.
+     */
+    private volatile DispatcherIndex dispatcherIndex;
 
     /**
      * Base metaclass.
@@ -552,6 +557,17 @@ public class MetaClass extends TearOffSupport {
         }
     }
     
+    /**
+     * Gets {@link #dispatchers} indexed by the URL token they react to.
+     */
+    /*package*/ DispatcherIndex getDispatcherIndex() {
+        DispatcherIndex.Tracked l = (DispatcherIndex.Tracked) dispatchers;
+        DispatcherIndex idx = dispatcherIndex;
+        if (idx==null || !idx.isUpToDate(l))
+            dispatcherIndex = idx = new DispatcherIndex(l);
+        return idx;
+    }
+
     /**
      * Return (A - B)
      */
@@ -576,15 +592,25 @@ public class MetaClass extends TearOffSupport {
     public SingleLinkedList<MethodRef> getPostConstructMethods() {
         if (postConstructMethods ==null) {
             SingleLinkedList<MethodRef> l = baseClass==null ? SingleLinkedList.<MethodRef>empty() : baseClass.getPostConstructMethods();
+            postConstructMethods = growPostConstructMethods(l, klass);
+        }
+        return postConstructMethods;
+    }
 
-            for (MethodRef mr : klass.getDeclaredMethods()) {
-                if (mr.hasAnnotation(PostConstruct.class)) {
-                    l = l.grow(mr);
-                }
+    /**
+     * Adds the methods that the given class itself declares with {@link PostConstruct}
+     * to those of its base class.
+     *
+     * @see DataBoundDescriptor#postConstructMethods
+     */
+    /*package*/ static SingleLinkedList<MethodRef> growPostConstructMethods(SingleLinkedList<MethodRef> base, Klass<?> klass) {
+        SingleLinkedList<MethodRef> l = base;
+        for (MethodRef mr : klass.getDeclaredMethods()) {
+            if (mr.hasAnnotation(PostConstruct.class)) {
+                l = l.grow(mr);
             }
-            postConstructMethods = l;
         }
-        return postConstructMethods;
+        return l;
     }
 
     private String getProtectedRole(FieldRef f) {
@@ -623,7 +649,7 @@ public class MetaClass extends TearOffSupport {
             if(traceable())
                 trace(req,rsp,"-> <%s>.%s(...)",node, f.getName());
 
-            JSONArray jsargs = JSONArray.fromObject(IOUtils.toString(req.getReader()));
+            JSONArray jsargs = JSONArray.fromObject(JsonBodyReader.read(req.getReader()));
             Object[] args = new Object[jsargs.size()];
             Class[] types = f.getParameterTypes();
             Type[] genericTypes = f.getGenericParameterTypes();
@@ -3,6 +3,7 @@ package org.kohsuke.stapler;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodHandles.Lookup;
+import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 
 /**
@@ -24,6 +25,21 @@ public final class MethodHandleFactory {
         }
     }
 
+    /**
+     * Gets a {@link MethodHandle} that reads the given field.
+     *
+     * @since TODO
+     */
+    public static MethodHandle getter(Field field) {
+        try {
+            field.setAccessible(true);
+
+            return LOOKUP.unreflectGetter(field);
+        } catch (IllegalAccessException e) {
+            throw (Error)new IllegalAccessError("Protected field: "+field).initCause(e);
+        }
+    }
+
 
     private MethodHandleFactory() {}
 }
@@ -23,6 +23,7 @@
 
 package org.kohsuke.stapler;
 
+import com.google.common.primitives.Primitives;
 import net.sf.json.JSON;
 import net.sf.json.JSONArray;
 import net.sf.json.JSONException;
@@ -47,21 +48,17 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletRequestWrapper;
 import javax.servlet.http.HttpServletResponse;
-import java.beans.Introspector;
 import java.beans.PropertyDescriptor;
 import java.io.IOException;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.Enumeration;
@@ -409,7 +406,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
             return r;   // nothing
 
         try {
-            new ClassDescriptor(type).loadConstructorParamNames();
+            DataBoundDescriptor.get(type).getConstructorParamNames();
             // use the designated constructor for databinding
             for( int i=0; i<len; i++ )
                 r.add(bindParameters(type,prefix,i));
@@ -442,14 +439,14 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     }
 
     public <T> T bindParameters(Class<T> type, String prefix, int index) {
-        String[] names = new ClassDescriptor(type).loadConstructorParamNames();
+        DataBoundDescriptor d = DataBoundDescriptor.get(type);
+        String[] names = d.getConstructorParamNames();
 
         // the actual arguments to invoke the constructor with.
         Object[] args = new Object[names.length];
 
         // constructor
-        Constructor<T> c = findConstructor(type, names.length);
-        Class[] types = c.getParameterTypes();
+        Class[] types = d.getConstructorParamTypes();
 
         // convert parameters
         for( int i=0; i<names.length; i++ ) {
@@ -467,7 +464,7 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
             args[i] = converter.convert(types[i],param);
         }
 
-        return invokeConstructor(c, args);
+        return type.cast(invokeConstructor(d, args));
     }
 
     public <T> T bindJSON(Class<T> type, JSONObject src) {
@@ -524,9 +521,9 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     }
 
 
-    private <T> T invokeConstructor(Constructor<T> c, Object[] args) {
+    private Object invokeConstructor(DataBoundDescriptor d, Object[] args) {
         try {
-            return c.newInstance(args);
+            return d.newInstance(args);
         } catch (InstantiationException e) {
             InstantiationError x = new InstantiationError(e.getMessage());
             x.initCause(e);
@@ -543,30 +540,10 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                 throw (RuntimeException)x;
             throw new IllegalArgumentException(x);
         } catch (IllegalArgumentException e) {
-            throw new IllegalArgumentException("Failed to invoke "+c+" with "+ Arrays.asList(args),e);
+            throw new IllegalArgumentException("Failed to invoke "+d.getConstructor()+" with "+ Arrays.asList(args),e);
         }
     }
 
-    private <T> Constructor<T> findConstructor(Class<T> type, int length) {
-        Constructor<?>[] ctrs = type.getConstructors();
-        // one with DataBoundConstructor is the most reliable
-        for (Constructor c : ctrs) {
-            if(c.getAnnotation(DataBoundConstructor.class)!=null) {
-                if(c.getParameterTypes().length!=length)
-                    throw new IllegalArgumentException(c+" has @DataBoundConstructor but it doesn't match with your .stapler file. Try clean rebuild");
-                return c;
-            }
-        }
-        // if not, maybe this was from @stapler-constructor,
-        // so look for the constructor with the expected argument length.
-        // this is not very reliable.
-        for (Constructor c : ctrs) {
-            if(c.getParameterTypes().length==length)
-                return c;
-        }
-        throw new IllegalArgumentException(type+" does not have a constructor with "+length+" arguments");
-    }
-
     private static void fill(Object bean, String key, Object value) {
         StringTokenizer tokens = new StringTokenizer(key);
         while(tokens.hasMoreTokens()) {
@@ -639,7 +616,8 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
                 return a;
             }
 
-            Lister l = Lister.create(type,genericType);
+            // scalar types are never collections, so don't bother asking
+            Lister l = isScalar(type) ? null : Lister.create(type,genericType);
 
             if (o instanceof JSONObject) {
                 JSONObject j = (JSONObject) o;
@@ -758,6 +736,13 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
         }
     }
 
+    /**
+     * Is this a type that's converted from a single JSON value, like a number, a string, or an enum constant?
+     */
+    private static boolean isScalar(Class type) {
+        return type.isPrimitive() || type==String.class || Primitives.isWrapperType(type) || type.isEnum();
+    }
+
     /**
      * Called after the actual type of the binding is figured out.
      */
@@ -771,26 +756,26 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
 
         if (actualType==JSONObject.class || actualType==JSON.class) return actualType.cast(j);
 
-        String[] names = new ClassDescriptor(actualType).loadConstructorParamNames();
+        DataBoundDescriptor d = DataBoundDescriptor.get(actualType);
+        String[] names = d.getConstructorParamNames();
 
         // the actual arguments to invoke the constructor with.
         Object[] args = new Object[names.length];
 
         // constructor
-        Constructor c = findConstructor(actualType, names.length);
-        Class[] types = c.getParameterTypes();
-        Type[] genTypes = c.getGenericParameterTypes();
+        Class[] types = d.getConstructorParamTypes();
+        Type[] genTypes = d.getConstructorGenericParamTypes();
 
         // convert parameters
         for( int i=0; i<names.length; i++ ) {
             try {
                 args[i] = bindJSON(genTypes[i],types[i],j.get(names[i]));
             } catch (IllegalArgumentException e) {
-                throw new IllegalArgumentException("Failed to convert the "+names[i]+" parameter of the constructor "+c,e);
+                throw new IllegalArgumentException("Failed to convert the "+names[i]+" parameter of the constructor "+d.getConstructor(),e);
             }
         }
 
-        Object o = injectSetters(invokeConstructor(c, args), j, Arrays.asList(names));
+        Object o = injectSetters(invokeConstructor(d, args), j);
         o = bindResolve(o,j);
 
         return o;
@@ -810,37 +795,21 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
     /**
      * Performs {@link DataBoundSetter} injections.
      *
-     * @param exclusions
-     *      Properties that are already injected through the constructor, thus not subject of the setter injection.
+     * <p>
+     * Properties that are already injected through the constructor are not subject of the setter injection.
      */
-    private <T> T injectSetters(T r, JSONObject j, Collection<String> exclusions) {
+    private <T> T injectSetters(T r, JSONObject j) {
+        DataBoundDescriptor d = DataBoundDescriptor.get(r.getClass());
+
         // try to assign rest of the properties
-        OUTER:
         for (String key : (Set<String>)j.keySet()) {
-            if (!exclusions.contains(key)) {
+            if (!d.isConstructorParam(key)) {
                 try {
-                    // try field injection first
-                    for (Class c=r.getClass(); c!=null; c=c.getSuperclass()) {
-                        try {
-                            Field f = c.getDeclaredField(key);
-                            if (f.getAnnotation(DataBoundSetter.class)!=null) {
-                                f.setAccessible(true);
-                                f.set(r, bindJSON(f.getGenericType(), f.getType(), j.get(key)));
-                                continue OUTER;
-                            }
-                        } catch (NoSuchFieldException e) {
-                            // recurse into parents
-                        }
-                    }
-
-                    Method wm = findDataBoundSetter(r.getClass(), key);
-                    if (wm==null)   continue;
+                    // field injection takes precedence over setter methods
+                    DataBoundDescriptor.Setter s = d.getSetter(key);
+                    if (s==null)    continue;
 
-                    Class<?>[] pt = wm.getParameterTypes();
-                    assert pt.length==1;
-
-                    // only invoking public methods for security reasons
-                    wm.invoke(r, bindJSON(wm.getGenericParameterTypes()[0], pt[0], j.get(key)));
+                    s.set(r, bindJSON(s.genericType, s.type, j.get(key)));
                 } catch (IllegalAccessException e) {
                     LOGGER.log(WARNING, "Cannot access property " + key + " of " + r.getClass(), e);
                 } catch (InvocationTargetException e) {
@@ -849,31 +818,11 @@ public class RequestImpl extends HttpServletRequestWrapper implements StaplerReq
             }
         }
 
-        invokePostConstruct(getWebApp().getMetaClass(r).getPostConstructMethods(), r);
+        invokePostConstruct(d.postConstructMethods, r);
 
         return r;
     }
 
-    private Method findDataBoundSetter(Class c, String name) {
-        // look for public setter that has the matching name
-        for ( ; c!=null; c=c.getSuperclass()) {
-            for (Method m : c.getDeclaredMethods()) {
-                if (!Modifier.isPublic(m.getModifiers())
-                 || !m.getName().startsWith("set")
-                 || m.getParameterTypes().length!=1
-                 || !m.isAnnotationPresent(DataBoundSetter.class))
-                    continue;
-
-                String propertyName = Introspector.decapitalize(m.getName().substring(3));
-                if (!name.equals(propertyName))
-                    continue;   // not the name we are looking for
-
-                return m;
-            }
-        }
-        return null;
-    }
-
     /**
      * Invoke PostConstruct method from the base class to subtypes.
      */
@@ -34,10 +34,15 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.annotation.Nonnull;
 import javax.servlet.ServletException;
 import javax.servlet.ServletOutputStream;
@@ -52,7 +57,10 @@ import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.compression.CompressionFilter;
 import org.kohsuke.stapler.compression.FilterServletOutputStream;
 import org.kohsuke.stapler.export.DataWriter;
+import org.kohsuke.stapler.export.ExportBudget;
+import org.kohsuke.stapler.export.ExportBudgetExceededException;
 import org.kohsuke.stapler.export.ExportConfig;
+import org.kohsuke.stapler.export.ExportedBean;
 import org.kohsuke.stapler.export.Flavor;
 import org.kohsuke.stapler.export.Model;
 import org.kohsuke.stapler.export.ModelBuilder;
@@ -210,6 +218,12 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
         serveFile(req, resource, -1);
     }
 
+    @Override
+    public void servePrecompressedFile(StaplerRequest req, URL resource, long expiration) throws ServletException, IOException {
+        if(!stapler.servePrecompressedResource(req,this,resource,expiration))
+            sendError(SC_NOT_FOUND);
+    }
+
     public void serveLocalizedFile(StaplerRequest request, URL res) throws ServletException, IOException {
         serveLocalizedFile(request,res,-1);
     }
@@ -245,19 +259,89 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
     public void serveExposedBean(StaplerRequest req, Object exposedBean, ExportConfig config) throws ServletException, IOException {
         String pad=null;
         Flavor flavor = config.getFlavor();
+        if (flavor==Flavor.JSON && mode!=OutputMode.CHAR) {
+            // machine clients can ask for the binary equivalent of JSON,
+            // unless somebody already went for the Writer, which CBOR can't be written to
+            addHeader("Vary", "Accept");
+            if (wantsCbor(req))
+                flavor = Flavor.CBOR;
+        } else if (flavor==Flavor.CBOR && mode==OutputMode.CHAR) {
+            flavor = Flavor.JSON;   // that's what CBOR writes to a Writer
+        }
         setContentType(flavor.contentType);
-        Writer w = getCompressedWriter(req);
+        boolean json = flavor==Flavor.JSON || flavor==Flavor.JSONP;
 
-        if (flavor==Flavor.JSON || flavor==Flavor.JSONP) { // for compatibility reasons, accept JSON for JSONP as well.
+        if (json) { // for compatibility reasons, accept JSON for JSONP as well.
             pad = req.getParameter("jsonp");
+        }
+
+        TreePruner pruner = createPruner(req);
+
+        try {
+            if (EXPORT_ETAG_BUFFER_SIZE>0 && mode==null && flavor!=Flavor.NDJSON && (req.getMethod().equals("GET") || req.getMethod().equals("HEAD"))) {
+                // buffer the output to compute ETag, so that an unchanged response can be answered by 304
+                ETagOutputStream out = new ETagOutputStream(req, EXPORT_ETAG_BUFFER_SIZE);
+                if(pad!=null) out.write((pad+'(').getBytes(StandardCharsets.UTF_8));
+                DataWriter dw = flavor.createDataWriter(exposedBean, out, config);
+                if (dw!=null) {
+                    writeAll(pruner, dw, exposedBean, flavor);
+                } else {
+                    Writer w = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    writeAll(pruner, flavor.createDataWriter(exposedBean, w, config), exposedBean, flavor);
+                    w.flush();
+                }
+                if(pad!=null) out.write(')');
+                out.close();
+                return;
+            }
+
+            if ((json || flavor==Flavor.CBOR || flavor==Flavor.NDJSON) && mode!=OutputMode.CHAR) {
+                // encode straight into the stream, unless somebody already went for the Writer.
+                // NDJSON lines are flushed as they go, which needs to push them through compression, too
+                OutputStream out = getCompressedOutputStream(req, flavor==Flavor.NDJSON);
+                if(pad!=null) out.write((pad+'(').getBytes(StandardCharsets.UTF_8));
+                writeAll(pruner, flavor.createDataWriter(exposedBean, out, config), exposedBean, flavor);
+                if(pad!=null) out.write(')');
+                out.close();
+                return;
+            }
+
+            Writer w = getCompressedWriter(req);
             if(pad!=null) w.write(pad+'(');
+            writeAll(pruner, flavor.createDataWriter(exposedBean, w, config), exposedBean, flavor);
+            if(pad!=null) w.write(')');
+            w.close();
+        } catch (ExportBudgetExceededException x) {
+            LOGGER.log(Level.FINE, "Export of {0} to {1} stopped: {2}", new Object[] {req.getRequestURI(), req.getRemoteAddr(), x.getMessage()});
+            if (isCommitted())
+                throw x;    // too late to tell the client properly
+            reset();
+            sendError(SC_BAD_REQUEST, x.getMessage()+". Use the tree or depth parameter to ask for less data.");
         }
+    }
+
+    /**
+     * Does the request ask for {@link Flavor#CBOR}, with {@code ?flavor=cbor}, or with an {@code Accept} header
+     * that prefers {@code application/cbor} to JSON?
+     */
+    private static boolean wantsCbor(StaplerRequest req) {
+        if ("cbor".equals(req.getParameter("flavor")))
+            return true;
+        String accept = req.getHeader("Accept");
+        if (accept==null)
+            return false;
+        try {
+            return new AcceptHeader(accept).select("application/json", Flavor.CBOR.contentType).equals(Flavor.CBOR.contentType);
+        } catch (HttpResponses.HttpResponseException e) {
+            return false;   // neither is acceptable, so leave it to JSON as before
+        }
+    }
 
-        TreePruner pruner;
+    private TreePruner createPruner(StaplerRequest req) throws ServletException {
         String tree = req.getParameter("tree");
         if (tree != null) {
             try {
-                pruner = new NamedPathPruner(tree);
+                return new NamedPathPruner(tree);
             } catch (IllegalArgumentException x) {
                 throw new ServletException("Malformed tree expression: " + x, x);
             }
@@ -271,22 +355,132 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
             } catch (NumberFormatException e) {
                 throw new ServletException("Depth parameter must be a number");
             }
-            pruner = new ByDepth(1 - depth);
+            return new ByDepth(1 - depth);
         }
-        DataWriter dw = flavor.createDataWriter(exposedBean, w, config);
+    }
+
+    private void writeAll(TreePruner pruner, DataWriter dw, Object exposedBean, Flavor flavor) throws IOException {
+        Iterable<?> items;
         if (exposedBean instanceof Object[]) {
             // TODO: extend the contract of DataWriter to capture this
             // TODO: make this work with XML flavor (or at least reject this better)
-            dw.startArray();
-            for (Object item : (Object[])exposedBean)
-                writeOne(pruner, dw, item);
-            dw.endArray();
+            items = Arrays.asList((Object[])exposedBean);
+        } else if (flavor==Flavor.NDJSON && exposedBean instanceof Iterable && !exposedBean.getClass().isAnnotationPresent(ExportedBean.class)) {
+            // lets a large collection be produced lazily as it's written into lines
+            items = (Iterable<?>)exposedBean;
         } else {
             writeOne(pruner, dw, exposedBean);
+            return;
         }
 
-        if(pad!=null) w.write(')');
-        w.close();
+        // the items share one budget
+        ExportBudget budget = dw.getExportConfig().getBudget();
+        DataWriter limited = budget!=null ? budget.limit(dw) : dw;
+        try {
+            limited.startArray();
+            for (Object item : items)
+                writeOne(pruner, limited, item);
+            limited.endArray();
+        } catch (ExportBudgetExceededException x) {
+            budget.end(limited, x);
+        }
+    }
+
+    /**
+     * Holds back the output up to the given size to compute the ETag header from it,
+     * and responds with 304 if that matches If-None-Match.
+     * Bigger output is streamed as usual without ETag.
+     */
+    private final class ETagOutputStream extends OutputStream {
+        private final StaplerRequest req;
+        private final int limit;
+        private ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        /**
+         * The actual output, once the buffer has overflowed.
+         */
+        private OutputStream out;
+
+        ETagOutputStream(StaplerRequest req, int limit) {
+            this.req = req;
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (out==null && buf.size()+len>limit) {
+                out = getCompressedOutputStream(req);
+                buf.writeTo(out);
+                buf = null;
+            }
+            if (out!=null)
+                out.write(b,off,len);
+            else
+                buf.write(b,off,len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (out==null) {
+                byte[] body = buf.toByteArray();
+                String etag = computeETag(req, body);
+                setHeader("ETag", etag);
+                addHeader("Vary", "Accept-Encoding");   // the ETag depends on it, even if the body turns out not to
+                if (matches(req.getHeader("If-None-Match"), etag)) {
+                    setStatus(SC_NOT_MODIFIED);
+                    return;
+                }
+                out = getCompressedOutputStream(req);
+                out.write(body);
+            }
+            out.close();
+        }
+    }
+
+    /**
+     * Strong ETag of the given response body. The encoding is mixed in, since compressed bytes differ,
+     * which is why {@code Vary: Accept-Encoding} goes along with it.
+     *
+     * <p>
+     * This is computed from the complete output, so answering 304 doesn't save the server anything:
+     * the bean is still serialized in full and hashed with SHA-1. Only the transfer is saved.
+     * None of this happens unless {@link #EXPORT_ETAG_BUFFER_SIZE} is set.
+     */
+    private String computeETag(HttpServletRequest req, byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(body);
+            StringBuilder sb = new StringBuilder(digest.length*2+8).append('"');
+            for (byte b : digest)
+                sb.append(Character.forDigit((b>>4)&0xF,16)).append(Character.forDigit(b&0xF,16));
+            if (acceptsGzip(req))
+                sb.append("-gzip");
+            return sb.append('"').toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e); // every JRE has SHA-1
+        }
+    }
+
+    /**
+     * Does the If-None-Match header match the given ETag?
+     * Uses the weak comparison, as specified for If-None-Match.
+     */
+    /*package*/ static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch==null)
+            return false;
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*"))
+                return true;
+            if (tag.startsWith("W/"))
+                tag = tag.substring(2);
+            if (tag.equals(etag))
+                return true;
+        }
+        return false;
     }
 
     private void writeOne(TreePruner pruner, DataWriter dw, Object item) throws IOException {
@@ -300,6 +494,15 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
     }
 
     public OutputStream getCompressedOutputStream(HttpServletRequest req) throws IOException {
+        return getCompressedOutputStream(req, false);
+    }
+
+    /**
+     * @param syncFlush
+     *      If true, {@link OutputStream#flush()} sends everything written so far to the client,
+     *      at the expense of compression ratio, rather than leaving it in the compressor.
+     */
+    private OutputStream getCompressedOutputStream(HttpServletRequest req, boolean syncFlush) throws IOException {
         if (mode!=null) // we already made the call and created OutputStream/Writer
             return getOutputStream();
 
@@ -312,7 +515,9 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
         // CompressionFilter not available, so do it on our own.
         // see CompressionFilter for why this is not desirable
         setHeader("Content-Encoding","gzip");
-        return recordOutput(new FilterServletOutputStream(new GZIPOutputStream(super.getOutputStream()), super.getOutputStream()));
+        GZIPOutputStream gz = new GZIPOutputStream(super.getOutputStream());
+        gz.setSyncFlush(syncFlush);
+        return recordOutput(new FilterServletOutputStream(gz, super.getOutputStream()));
     }
 
     public Writer getCompressedWriter(HttpServletRequest req) throws IOException {
@@ -436,4 +641,21 @@ public class ResponseImpl extends HttpServletResponseWrapper implements StaplerR
     }
 
     /*package*/ static ModelBuilder MODEL_BUILDER = new ModelBuilder();
+
+    private static final Logger LOGGER = Logger.getLogger(ResponseImpl.class.getName());
+
+    /**
+     * Responses of {@link #serveExposedBean(StaplerRequest, Object, ExportConfig)} up to this many bytes
+     * are buffered to compute ETag, so that polling clients can get 304 for unchanged data with If-None-Match.
+     * This is off unless set here or with the {@code org.kohsuke.stapler.ResponseImpl.exportETagBufferSize}
+     * system property; 0 or less disables it, and the output is always streamed.
+     *
+     * <p>
+     * Note that a 304 still costs a full serialization plus a SHA-1 digest of the output;
+     * it only saves sending the body.
+     *
+     * @since TODO
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "Tunable by the application.")
+    public static int EXPORT_ETAG_BUFFER_SIZE = Integer.getInteger(ResponseImpl.class.getName()+".exportETagBufferSize", 0);
 }
@@ -23,6 +23,8 @@
 
 package org.kohsuke.stapler;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import net.sf.json.JSONObject;
 import org.apache.commons.beanutils.ConversionException;
@@ -36,6 +38,7 @@ import org.apache.commons.fileupload.FileItem;
 import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.bind.BoundObjectTable;
 
+import javax.annotation.CheckForNull;
 import javax.servlet.RequestDispatcher;
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletContext;
@@ -45,9 +48,10 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -60,6 +64,8 @@ import java.net.SocketException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -76,9 +82,9 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
 import java.util.TimeZone;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import static javax.servlet.http.HttpServletResponse.*;
@@ -109,6 +115,19 @@ public class Stapler extends HttpServlet {
      */
     private volatile Map<String,URL> resourcePaths;
 
+    /**
+     * Static resources served recently, or null if disabled.
+     */
+    @SuppressFBWarnings(value = "SE_BAD_FIELD", justification = "The Stapler class is not expected to be serialized.")
+    private final StaticResourceCache staticResourceCache =
+            STATIC_RESOURCE_CACHE_SIZE>0 ? new StaticResourceCache(STATIC_RESOURCE_CACHE_SIZE) : null;
+
+    /**
+     * URLs of the gzipped copies of static resources that turned out not to exist,
+     * so that we don't keep looking for them. The least recently used ones are forgotten first.
+     */
+    private final Cache<String,Boolean> notPrecompressed = CacheBuilder.newBuilder().maximumSize(MAX_RESOLVED).build();
+
     /**
      * Temporarily updates the thread name to reflect the request being processed.
      * On by default for convenience, but for webapps that use filters, use
@@ -142,6 +161,11 @@ public class Stapler extends HttpServlet {
      * Rebuild the internal cache for static resources.
      */
     public void buildResourcePaths() {
+        if (staticResourceCache!=null)
+            staticResourceCache.clear();
+        resourcePathLocaleSelector.clear();
+        urlLocaleSelector.clear();
+        notPrecompressed.invalidateAll();
         try {
             if (Boolean.getBoolean(Stapler.class.getName()+".noResourcePathCache")) {
                 resourcePaths = null;
@@ -222,12 +246,39 @@ public class Stapler extends HttpServlet {
                 // also note that Windows allows "/WEB-INF./" to refer to refer to this directory.
                 // here we also reject that (by rejecting /WEB-INF*)
 
+                long expires = MetaClass.NO_CACHE ? 0 : 24L * 60 * 60 * 1000; /*1 day*/
+                if(staticLink)
+                    expires*=365;   // static resources are unique, so we can set a long expiration date
+
+                // cached resources are keyed by their URL, so the locales that end up with the same resource share it
+                boolean cache = staticResourceCache!=null && !MetaClass.NO_CACHE;
+                if(cache) {
+                    // usually the locale specific resource is known by now, so nothing needs to be opened
+                    URL url = resolveResourcePathByLocale(req,servletPath);
+                    StaticResourceCache.Entry cached = url!=null ? staticResourceCache.get(url.toExternalForm()) : null;
+                    if(cached!=null) {
+                        serveStaticResource(req, new ResponseImpl(this, rsp), cached, expires);
+                        return;
+                    }
+                }
+
                 OpenConnection con = openResourcePathByLocale(req,servletPath);
                 if(con!=null) {
-                    long expires = MetaClass.NO_CACHE ? 0 : 24L * 60 * 60 * 1000; /*1 day*/
-                    if(staticLink)
-                        expires*=365;   // static resources are unique, so we can set a long expiration date
-                    if(serveStaticResource(req, new ResponseImpl(this, rsp), con, expires))
+                    if(cache) {
+                        String key = con.connection.getURL().toExternalForm();
+                        StaticResourceCache.Entry cached = staticResourceCache.get(key);
+                        if(cached!=null) {
+                            con.close();    // already loaded for another locale
+                        } else if(staticResourceCache.accepts(con.getContentLength())) {
+                            cached = load(con);
+                            staticResourceCache.put(key, cached);
+                        }
+                        if(cached!=null) {
+                            serveStaticResource(req, new ResponseImpl(this, rsp), cached, expires);
+                            return;
+                        }
+                    }
+                    if(serveStaticResource(req, new ResponseImpl(this, rsp), con, expires, true))
                         return; // done
                 }
             }
@@ -266,16 +317,34 @@ public class Stapler extends HttpServlet {
     private static final class OpenConnection {
         final URLConnection connection;
         final InputStream stream;
+        /**
+         * If the resource is a file, that file, which is read directly instead of through {@link #connection}.
+         */
+        private final File file;
 
         private OpenConnection(URLConnection connection, InputStream stream) {
             this.connection = connection;
             this.stream = stream;
+            this.file = null;
         }
 
         private OpenConnection(URLConnection connection) throws IOException {
             this(connection,connection.getInputStream());
         }
 
+        private OpenConnection(URLConnection connection, File file) throws IOException {
+            this.connection = connection;
+            this.stream = new FileInputStream(file);
+            this.file = file;
+        }
+
+        /**
+         * Don't touch {@code connection} for files, as that opens another stream.
+         */
+        public long getContentLength() {
+            return file!=null ? file.length() : connection.getContentLength();
+        }
+
         private void close() throws IOException {
             stream.close();
         }
@@ -286,7 +355,9 @@ public class Stapler extends HttpServlet {
          * See http://sourceforge.net/p/freemarker/bugs/189/
          */
         public long getLastModified() {
-            if (connection instanceof JarURLConnection) {
+            if (file!=null) {
+                return file.lastModified();
+            } else if (connection instanceof JarURLConnection) {
                 // There is a bug in sun's jar url connection that causes file handle leaks when calling getLastModified()
                 // Since the time stamps of jar file contents can't vary independent from the jar file timestamp, just use
                 // the jar file timestamp
@@ -331,6 +402,13 @@ public class Stapler extends HttpServlet {
      * Different subtypes provide different meanings for the 'path' parameter.
      */
     private abstract class LocaleDrivenResourceSelector {
+        /**
+         * Locale specific paths that {@link #open(String, Locale, URL)} found, keyed by the path and the locale.
+         * The path itself if there's no locale specific resource, so that we don't keep looking for
+         * the ones that don't exist. Also see {@link #resolve(String, Locale, URL)}.
+         */
+        private final Cache<String,String> resolved = CacheBuilder.newBuilder().maximumSize(MAX_RESOLVED).build();
+
         /**
          * The 'path' is divided into the base part and the extension, and the locale-specific
          * suffix is inserted to the base portion. {@link #map(String)} is used to convert
@@ -350,53 +428,119 @@ public class Stapler extends HttpServlet {
          *      Used as a fallback.
          */
         OpenConnection open(String path, Locale locale, URL fallback) throws IOException {
-            String s = path;
-            int idx = s.lastIndexOf('.');
+            int idx = extensionIndex(path);
             if(idx<0)   // no file extension, so no locale switch available
                 return openURL(fallback);
-            String base = s.substring(0,idx);
-            String ext = s.substring(idx);
-            if(ext.indexOf('/')>=0) // the '.' we found was not an extension separator
-                return openURL(fallback);
+            String base = path.substring(0,idx);
+            String ext = path.substring(idx);
+
+            String key = null;
+            if(!MetaClass.NO_CACHE) {
+                key = path+'\u0000'+locale;
+                String r = resolved.getIfPresent(key);
+                if(r!=null) {
+                    if(r.equals(path))
+                        return openURL(fallback);
+                    OpenConnection con = openURL(map(r));
+                    if(con!=null)
+                        return con;
+                    resolved.invalidate(key);   // no longer there, so look again
+                }
+            }
 
-            // RegExps found in Locale JavaDoc
             String language = locale.getLanguage();
-            boolean languageOk = language.matches("^[a-zA-Z]{2,8}$");
+            boolean languageOk = LANGUAGE.matcher(language).matches();
             String country = locale.getCountry();
-            boolean countryOk = country.matches("^[a-zA-Z]{2}|[0-9]{3}$");
+            boolean countryOk = COUNTRY.matcher(country).matches();
             String variant = locale.getVariant();
-            
-            String SUBTAG = "(?:[0-9][0-9a-zA-Z]{3}|[0-9a-zA-Z]{5,8})";
-            boolean variantOk = variant.matches("^" + SUBTAG + "(?:[_\\-]" + SUBTAG + ")*$");
-            
-            OpenConnection con;
+            boolean variantOk = VARIANT.matcher(variant).matches();
 
             // try locale specific resources first.
             if(languageOk && countryOk && variantOk){
-                con = openURL(map(base + '_' + language + '_' + country + '_' + variant + ext));
+                OpenConnection con = open(key, base + '_' + language + '_' + country + '_' + variant + ext);
                 if(con!=null)
                     return con;
             }
             if(languageOk && countryOk){
-                con = openURL(map(base + '_'+ language + '_' + country + ext));
+                OpenConnection con = open(key, base + '_'+ language + '_' + country + ext);
                 if(con!=null)
                     return con;
             }
             if(languageOk){
-                con = openURL(map(base + '_' + language + ext));
+                OpenConnection con = open(key, base + '_' + language + ext);
                 if(con!=null)
                     return con;
             }
             // default
+            remember(key, path);
             return openURL(fallback);
         }
 
+        /**
+         * Finds the URL that {@link #open(String, Locale, URL)} would open, if that's already known,
+         * without opening anything.
+         *
+         * @return
+         *      null if the locale specific resource hasn't been looked for yet.
+         */
+        @CheckForNull URL resolve(String path, Locale locale, URL fallback) throws IOException {
+            if(extensionIndex(path)<0)
+                return fallback;
+            if(MetaClass.NO_CACHE)
+                return null;
+            String r = resolved.getIfPresent(path+'\u0000'+locale);
+            if(r==null)
+                return null;
+            return r.equals(path) ? fallback : map(r);
+        }
+
+        /**
+         * Position of the '.' before the file extension, or -1 if there's no extension.
+         */
+        private int extensionIndex(String path) {
+            int idx = path.lastIndexOf('.');
+            if(idx>=0 && path.indexOf('/',idx)>=0)
+                return -1;  // the '.' we found was not an extension separator
+            return idx;
+        }
+
+        /**
+         * Opens a locale specific resource, and remembers it if it exists.
+         */
+        private OpenConnection open(String key, String path) throws IOException {
+            OpenConnection con = openURL(map(path));
+            if(con!=null)
+                remember(key, path);
+            return con;
+        }
+
+        private void remember(String key, String path) {
+            if(key==null)
+                return; // not caching
+            resolved.put(key, path);
+        }
+
+        void clear() {
+            resolved.invalidateAll();
+        }
+
         /**
          * Maps the 'path' into {@link URL}.
          */
         abstract URL map(String path) throws IOException;
     }
 
+    // RegExps found in Locale JavaDoc
+    private static final Pattern LANGUAGE = Pattern.compile("[a-zA-Z]{2,8}");
+    private static final Pattern COUNTRY = Pattern.compile("[a-zA-Z]{2}|[0-9]{3}");
+    private static final String SUBTAG = "(?:[0-9][0-9a-zA-Z]{3}|[0-9a-zA-Z]{5,8})";
+    private static final Pattern VARIANT = Pattern.compile(SUBTAG + "(?:[_\\-]" + SUBTAG + ")*");
+
+    /**
+     * Maximum number of entries in {@link LocaleDrivenResourceSelector#resolved} and {@link #notPrecompressed}.
+     */
+    private static final int MAX_RESOLVED = 4096;
+
     @SuppressFBWarnings(value = "SE_BAD_FIELD", justification = "The Stapler class is not expected to be serialized.")
     private final LocaleDrivenResourceSelector resourcePathLocaleSelector = new LocaleDrivenResourceSelector() {
         @Override
@@ -417,6 +561,16 @@ public class Stapler extends HttpServlet {
         return resourcePathLocaleSelector.open(resourcePath,req.getLocale(),url);
     }
 
+    /**
+     * The URL that {@link #openResourcePathByLocale(HttpServletRequest, String)} would open,
+     * or null if that isn't known without looking.
+     */
+    private @CheckForNull URL resolveResourcePathByLocale(HttpServletRequest req,String resourcePath) throws IOException {
+        URL url = getResource(resourcePath);
+        if(url==null)   return null;
+        return resourcePathLocaleSelector.resolve(resourcePath,req.getLocale(),url);
+    }
+
     /**
      * {@link LocaleDrivenResourceSelector} that uses a complete URL as 'path'
      */
@@ -441,16 +595,124 @@ public class Stapler extends HttpServlet {
      * Serves the specified {@link URLConnection} as a static resource.
      */
     boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, OpenConnection con, long expiration) throws IOException {
+        return serveStaticResource(req, rsp, con, expiration, false);
+    }
+
+    /**
+     * @param precompressed
+     *      true to look for the gzipped copy of the resource, see {@link #openPrecompressed(OpenConnection)}.
+     *      Only for the resources of the application itself, as an unrelated ".gz" file next to
+     *      user content would be sent in its place.
+     */
+    private boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, OpenConnection con, long expiration, boolean precompressed) throws IOException {
         if (con == null) return false;
+        OpenConnection gz = null;
         try {
+            if (precompressed) {
+                // no need to look for the gzipped copy if the client already has the resource
+                if (checkLastModified(req, rsp, con.getLastModified(), expiration))
+                    return true;
+                gz = openPrecompressed(con);
+            }
+            if (gz!=null) {
+                rsp.addHeader("Vary","Accept-Encoding");
+                if (acceptsGzip(req) && req.getHeader("Range")==null)
+                    return serveStaticResource(req, rsp, gz.stream,
+                            con.getLastModified(),
+                            expiration,
+                            gz.getContentLength(),
+                            con.connection.getURL().toString(),
+                            true);
+            }
             return serveStaticResource(req, rsp, con.stream,
                     con.getLastModified(),
                     expiration,
-                    con.connection.getContentLength(),
+                    con.getContentLength(),
                     con.connection.getURL().toString());
         } finally {
             con.close();
+            if (gz!=null)
+                gz.close();
+        }
+    }
+
+    /**
+     * Opens the gzipped copy of the resource that the build may have put next to it, like "app.js.gz" for "app.js",
+     * so that it can be sent as is to the clients that accept gzip.
+     *
+     * @return
+     *      null if there's no such file, or if it's older than the resource itself.
+     */
+    private OpenConnection openPrecompressed(OpenConnection con) throws IOException {
+        String url = con.connection.getURL().toExternalForm()+".gz";
+        boolean cache = !MetaClass.NO_CACHE;
+        if (cache && notPrecompressed.getIfPresent(url)!=null)
+            return null;
+
+        OpenConnection gz = openURL(new URL(url));
+        if (gz!=null && gz.getLastModified()<con.getLastModified()) {
+            gz.close(); // stale, so compress as usual
+            gz = null;
         }
+        if (gz==null && cache)
+            notPrecompressed.put(url, Boolean.TRUE);
+        return gz;
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest req) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        return acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1;
+    }
+
+    /**
+     * Reads the whole resource into memory, for {@link #staticResourceCache}.
+     */
+    private StaticResourceCache.Entry load(OpenConnection con) throws IOException {
+        OpenConnection gz = null;
+        try {
+            String fileName = con.connection.getURL().toString();
+            byte[] data = IOUtils.toByteArray(con.stream, con.getContentLength());
+            gz = openPrecompressed(con);
+            byte[] precompressed = gz!=null ? IOUtils.toByteArray(gz.stream, gz.getContentLength()) : null;
+            String mimeType = getMimeType(fileName);
+            return new StaticResourceCache.Entry(data, isTextFile(mimeType, fileName), precompressed, mimeType, con.getLastModified(), fileName);
+        } finally {
+            con.close();
+            if (gz!=null)
+                gz.close();
+        }
+    }
+
+    /**
+     * Serves a static resource from {@link #staticResourceCache}, as
+     * {@link #serveStaticResource(HttpServletRequest, StaplerResponse, InputStream, long, long, long, String)} would.
+     */
+    private void serveStaticResource(HttpServletRequest req, StaplerResponse rsp, StaticResourceCache.Entry r, long expiration) throws IOException {
+        if (r.precompressed)
+            rsp.addHeader("Vary","Accept-Encoding");
+
+        if (req.getHeader("Range")!=null) {
+            // rare enough to go the usual way
+            serveStaticResource(req, rsp, new ByteArrayInputStream(r.data), r.lastModified, expiration, r.data.length, r.fileName);
+            return;
+        }
+
+        if (checkLastModified(req, rsp, r.lastModified, expiration))
+            return;
+
+        rsp.setHeader("Accept-Ranges","bytes");
+        rsp.setContentType(r.mimeType);
+        rsp.setHeader("X-Content-Type-Options","nosniff");
+
+        byte[] body = r.data;
+        if (r.gzipped!=null && acceptsGzip(req)) {
+            rsp.setHeader("Content-Encoding","gzip");
+            body = r.gzipped;
+        }
+        rsp.setHeader("Content-Length", Integer.toString(body.length));
+        OutputStream out = rsp.getOutputStream();
+        out.write(body);
+        out.close();
     }
 
     /**
@@ -460,6 +722,14 @@ public class Stapler extends HttpServlet {
         return serveStaticResource(req,rsp,openURL(url),expiration);
     }
 
+    /**
+     * Serves the specified {@link URL} as a static resource of the application,
+     * preferring its gzipped copy if there's one.
+     */
+    boolean servePrecompressedResource(HttpServletRequest req, StaplerResponse rsp, URL url, long expiration) throws IOException {
+        return serveStaticResource(req,rsp,openURL(url),expiration,true);
+    }
+
     /**
      * Opens URL, with error handling to absorb container differences.
      * <p>
@@ -487,6 +757,9 @@ public class Stapler extends HttpServlet {
             // as "the resource pointed by URL is missing".
             URLConnection con = openConnection(url);
 
+            if(f!=null && f.isFile())
+                return new OpenConnection(con, f); // so that ranges can reposition the FileChannel
+
             OpenConnection c = new OpenConnection(con);
             // Some URLs backed by custom broken protocol handler can return null from getInputStream(),
             // so let's be defensive here. An example of that is an OSGi container --- unfortunately
@@ -527,36 +800,18 @@ public class Stapler extends HttpServlet {
      *      if the resource doesn't exist.
      */
     boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, InputStream in, long lastModified, long expiration, long contentLength, String fileName) throws IOException {
-        try {
-            {// send out Last-Modified, or check If-Modified-Since
-                if(lastModified!=0) {
-                    String since = req.getHeader("If-Modified-Since");
-                    SimpleDateFormat format = HTTP_DATE_FORMAT.get();
-                    if(since!=null) {
-                        try {
-                            long ims = format.parse(since).getTime();
-                            if(lastModified<ims+1000) {
-                                // +1000 because date header is second-precision and Java has milli-second precision
-                                rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
-                                return true;
-                            }
-                        } catch (ParseException e) {
-                            // just ignore and serve the content
-                        } catch (NumberFormatException e) {
-                            // trying to locate a bug with Jetty
-                            getServletContext().log("Error parsing ["+since+"]",e);
-                            throw e;
-                        }
-                    }
+        return serveStaticResource(req, rsp, in, lastModified, expiration, contentLength, fileName, false);
+    }
 
-                    String lastModifiedStr = format.format(new Date(lastModified));
-                    rsp.setHeader("Last-Modified", lastModifiedStr);
-                    if(expiration<=0)
-                        rsp.setHeader("Expires",lastModifiedStr);
-                    else
-                        rsp.setHeader("Expires",format.format(new Date(new Date().getTime()+expiration)));
-                }
-            }
+    /**
+     * @param gzipped
+     *      true if {@code in} is already compressed by gzip, in which case it's sent as is,
+     *      and ranges aren't supported.
+     */
+    private boolean serveStaticResource(HttpServletRequest req, StaplerResponse rsp, InputStream in, long lastModified, long expiration, long contentLength, String fileName, boolean gzipped) throws IOException {
+        try {
+            if (checkLastModified(req, rsp, lastModified, expiration))
+                return true;
 
             rsp.setHeader("Accept-Ranges","bytes"); // advertize that we support the range header
 
@@ -568,64 +823,39 @@ public class Stapler extends HttpServlet {
             // a comprehensive discussion on this topic
             rsp.setHeader("X-Content-Type-Options","nosniff");
 
-            int idx = fileName.lastIndexOf('.');
-            String ext = fileName.substring(idx+1);
+            if(gzipped)
+                rsp.setHeader("Content-Encoding","gzip");
+
+            // partial GET. Only for the known content length case, as the Content-Range header needs it
+            String range = req.getHeader("Range");
+            if(range!=null && !gzipped && contentLength!=-1 && checkIfRange(req, lastModified)) {
+                List<ByteRange> ranges = ByteRange.parse(range, contentLength);
+                // if the Range header doesn't look like what we can handle,
+                // pretend as if we didn't understand it, instead of doing a proper error reporting
+                if(ranges!=null) {
+                    serveRanges(rsp, in, ranges, mimeType, contentLength);
+                    return true;
+                }
+            }
 
             OutputStream out = null;
-            if(mimeType.startsWith("text/") || TEXT_FILES.contains(ext)) {
+            if(!gzipped && isTextFile(mimeType, fileName)) {
                 // Need to duplicate this logic from ResponseImpl.getCompressedOutputStream,
                 // since we want to set content length if we are not using encoding.
-                String acceptEncoding = req.getHeader("Accept-Encoding");
-                if (acceptEncoding != null && acceptEncoding.indexOf("gzip") != -1) {
+                if (acceptsGzip(req)) {
                     // with gzip compression, Content-Length header needs to indicate the # of bytes after compression,
                     // so we can't compute it upfront.
                     out = rsp.getCompressedOutputStream(req);
                 }
             }
 
-            // somewhat limited implementation of the partial GET
-            String range = req.getHeader("Range");
-            if(range!=null && contentLength!=-1) {// I'm lazy and only implementing this for known content length case
-                if(range.startsWith("bytes=")) {
-                    range = range.substring(6);
-                    Matcher m = RANGE_SPEC.matcher(range);
-                    if(m.matches()) {
-                        long s = Long.parseLong(m.group(1));
-                        long e = m.group(2).length()>0
-                                ? Long.parseLong(m.group(2))+1 //range set is inclusive
-                                : contentLength; // unspecified value means "all the way to the end"
-                        e = Math.min(e,contentLength);
-
-                        // ritual for responding to a partial GET
-                        rsp.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
-                        rsp.setHeader("Content-Range","bytes "+s+"-"+(e-1)+'/'+contentLength); // end is inclusive.
-
-                        // prepare to send the partial content
-                        DataInputStream dis = new DataInputStream(in);
-                        long toSkip = s, thisSkip;
-                        while (toSkip > 0 && (thisSkip = dis.skipBytes((int)Math.min(toSkip, Integer.MAX_VALUE))) > 0)
-                            toSkip -= thisSkip;
-                        if (toSkip > 0)
-                            throw new IOException(
-                                "skipBytes failure (" + toSkip + " of " + s + " bytes unskipped)");
-                        in = new TruncatedInputStream(in,e-s);
-                        contentLength = Math.min(e-s,contentLength);
-                    }
-                    // if the Range header doesn't look like what we can handle,
-                    // pretend as if we didn't understand it, instead of doing a proper error reporting
-                }
-            }
-
             if (out == null) {
                 if(contentLength!=-1)
                     rsp.setHeader("Content-Length", Long.toString(contentLength));
                 out = rsp.getOutputStream();
             }
 
-            byte[] buf = new byte[1024];
-            int len;
-            while((len=in.read(buf))>0)
-                out.write(buf,0,len);
+            copy(in, -1, out);
             out.close();
             return true;
         } finally {
@@ -634,9 +864,175 @@ public class Stapler extends HttpServlet {
     }
 
     /**
-     * Strings like "5-300", "0-900", or "100-"
+     * Checks If-Range, which says to only send the ranges if the resource hasn't changed.
+     *
+     * @return
+     *      true if the Range header is to be honored.
+     */
+    private static boolean checkIfRange(HttpServletRequest req, long lastModified) {
+        String ifRange = req.getHeader("If-Range");
+        if (ifRange==null)
+            return true;
+        if (lastModified<=0)
+            return false;   // nothing to compare against
+        try {
+            // date header is second-precision
+            return HTTP_DATE_FORMAT.get().parse(ifRange).getTime()/1000 == lastModified/1000;
+        } catch (ParseException e) {
+            return false;   // an entity tag, but we never send ETag for static resources
+        }
+    }
+
+    /**
+     * Sends the parts of the content requested by the Range header.
+     * Ranges aren't compressed, as Content-Range would then have to refer to the compressed bytes.
+     *
+     * @param ranges
+     *      as returned from {@link ByteRange#parse(String, long)}.
      */
-    private static final Pattern RANGE_SPEC = Pattern.compile("([\\d]+)-([\\d]*)");
+    private static void serveRanges(StaplerResponse rsp, InputStream in, List<ByteRange> ranges, String mimeType, long contentLength) throws IOException {
+        if (ranges.isEmpty()) {
+            rsp.setHeader("Content-Range", "bytes */"+contentLength);
+            rsp.sendError(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            return;
+        }
+
+        // ritual for responding to a partial GET
+        rsp.setStatus(SC_PARTIAL_CONTENT);
+
+        if (ranges.size()==1) {
+            ByteRange r = ranges.get(0);
+            rsp.setHeader("Content-Range", r.toContentRange(contentLength));
+            rsp.setHeader("Content-Length", Long.toString(r.length()));
+            OutputStream out = rsp.getOutputStream();
+            skip(in, r.start);
+            copy(in, r.length(), out);
+            out.close();
+            return;
+        }
+
+        // multiple ranges are sent as multipart/byteranges, with the length computed up front
+        String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        byte[][] partHeaders = new byte[ranges.size()][];
+        byte[] end = ("\r\n--"+boundary+"--\r\n").getBytes(StandardCharsets.US_ASCII);
+        long length = end.length;
+        for (int i=0; i<partHeaders.length; i++) {
+            ByteRange r = ranges.get(i);
+            partHeaders[i] = ("\r\n--"+boundary+"\r\n"
+                    +"Content-Type: "+mimeType+"\r\n"
+                    +"Content-Range: "+r.toContentRange(contentLength)+"\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            length += partHeaders[i].length+r.length();
+        }
+
+        rsp.setContentType("multipart/byteranges; boundary="+boundary);
+        rsp.setHeader("Content-Length", Long.toString(length));
+        OutputStream out = rsp.getOutputStream();
+        long pos = 0;
+        for (int i=0; i<partHeaders.length; i++) {
+            ByteRange r = ranges.get(i);
+            out.write(partHeaders[i]);
+            skip(in, r.start-pos);  // ranges are sorted and don't overlap, so this only goes forward
+            copy(in, r.length(), out);
+            pos = r.end;
+        }
+        out.write(end);
+        out.close();
+    }
+
+    /**
+     * Skips over the given number of bytes. Files are simply repositioned instead of read through.
+     */
+    private static void skip(InputStream in, long n) throws IOException {
+        if (in instanceof FileInputStream) {
+            FileChannel file = ((FileInputStream) in).getChannel();
+            file.position(file.position()+n);
+            return;
+        }
+
+        long toSkip = n, thisSkip;
+        while (toSkip > 0) {
+            thisSkip = in.skip(toSkip);
+            if (thisSkip <= 0) {
+                // skip() is allowed to skip nothing for no particular reason, so see if we are at the end
+                if (in.read() < 0)
+                    throw new EOFException("skip failure (" + toSkip + " of " + n + " bytes unskipped)");
+                thisSkip = 1;
+            }
+            toSkip -= thisSkip;
+        }
+    }
+
+    /**
+     * Copies the given number of bytes, or everything if -1, from the current position of the stream.
+     *
+     * <p>
+     * Files are read in bigger chunks, but they still go through a {@code byte[]}:
+     * {@link javax.servlet.ServletOutputStream} only takes byte arrays and isn't a channel,
+     * so {@link FileChannel#transferTo} and the like can't hand the file to the container without a copy.
+     */
+    private static void copy(InputStream in, long count, OutputStream out) throws IOException {
+        int bufferSize = in instanceof FileInputStream ? FILE_BUFFER_SIZE : 8192;
+        byte[] buf = new byte[count<0 ? bufferSize : (int)Math.min(count, bufferSize)];
+        while (count!=0) {
+            int n = in.read(buf, 0, count<0 ? buf.length : (int)Math.min(buf.length, count));
+            if (n<0)
+                break;
+            out.write(buf, 0, n);
+            if (count>0)
+                count -= n;
+        }
+    }
+
+    /**
+     * Size of the chunks in which files are served.
+     */
+    private static final int FILE_BUFFER_SIZE = 64*1024;
+
+    /**
+     * Sends out Last-Modified, or checks If-Modified-Since.
+     *
+     * @return
+     *      true if the client already has the resource, and 304 was sent.
+     */
+    private boolean checkLastModified(HttpServletRequest req, StaplerResponse rsp, long lastModified, long expiration) {
+        if(lastModified!=0) {
+            String since = req.getHeader("If-Modified-Since");
+            SimpleDateFormat format = HTTP_DATE_FORMAT.get();
+            if(since!=null) {
+                try {
+                    long ims = format.parse(since).getTime();
+                    if(lastModified<ims+1000) {
+                        // +1000 because date header is second-precision and Java has milli-second precision
+                        rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                        return true;
+                    }
+                } catch (ParseException e) {
+                    // just ignore and serve the content
+                } catch (NumberFormatException e) {
+                    // trying to locate a bug with Jetty
+                    getServletContext().log("Error parsing ["+since+"]",e);
+                    throw e;
+                }
+            }
+
+            String lastModifiedStr = format.format(new Date(lastModified));
+            rsp.setHeader("Last-Modified", lastModifiedStr);
+            if(expiration<=0)
+                rsp.setHeader("Expires",lastModifiedStr);
+            else
+                rsp.setHeader("Expires",format.format(new Date(new Date().getTime()+expiration)));
+        }
+        return false;
+    }
+
+    /**
+     * Is this a text file, which is worth compressing?
+     */
+    private static boolean isTextFile(String mimeType, String fileName) {
+        int idx = fileName.lastIndexOf('.');
+        String ext = fileName.substring(idx+1);
+        return mimeType.startsWith("text/") || TEXT_FILES.contains(ext);
+    }
 
     private String getMimeType(String fileName) {
         if(fileName.startsWith("mime-type:"))
@@ -762,12 +1158,11 @@ public class Stapler extends HttpServlet {
         MetaClass metaClass = webApp.getMetaClass(node);
 
         try {
-            for( Dispatcher d : metaClass.dispatchers ) {
-                if(d.dispatch(req,rsp,node)) {
-                    if(LOGGER.isLoggable(Level.FINER))
-                        LOGGER.finer("Handled by "+d);
-                    return true;
-                }
+            Dispatcher d = metaClass.getDispatcherIndex().dispatch(req,rsp,node);
+            if(d!=null) {
+                if(LOGGER.isLoggable(Level.FINER))
+                    LOGGER.finer("Handled by "+d);
+                return true;
             }
         } catch (IllegalAccessException e) {
             // this should never really happen
@@ -1033,6 +1428,17 @@ public class Stapler extends HttpServlet {
 
     private static final Logger LOGGER = Logger.getLogger(Stapler.class.getName());
 
+    /**
+     * Total size in bytes of the static resources to keep in memory, with their compressed copies.
+     * Resources bigger than 1/16 of this are always read from where they are.
+     * 0 or less disables the cache. The cache is also bypassed while {@link MetaClass#NO_CACHE} is set,
+     * and cleared by {@link #buildResourcePaths()}.
+     *
+     * @since TODO
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "Tunable by the application.")
+    public static long STATIC_RESOURCE_CACHE_SIZE = Long.getLong(Stapler.class.getName()+".staticResourceCacheSize", 16*1024*1024);
+
     /**
      * Extensions that look like text files.
      */
@@ -1093,6 +1499,22 @@ public class Stapler extends HttpServlet {
      */
     public static final ConvertUtilsBean CONVERT_UTILS = new ConvertUtilsBean();
 
+    /**
+     * Remembers which types have {@code $StaplerConverterImpl}, since {@link #lookupConverter(Class)} runs
+     * for every converted value and a failed class loading is expensive.
+     */
+    private static final ClassValue<Boolean> HAS_CONVERTER_IMPL = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            try {
+                type.getClassLoader().loadClass(type.getName() + "$StaplerConverterImpl");
+                return true;
+            } catch (ClassNotFoundException e) {
+                return false;
+            }
+        }
+    };
+
     public static Converter lookupConverter(Class type) {
         Converter c = CONVERT_UTILS.lookup(type);
         if (c!=null) return c;
@@ -1104,10 +1526,12 @@ public class Stapler extends HttpServlet {
         try {
             if(type.getClassLoader()==null)
                 return null;
-            Class<?> cl = type.getClassLoader().loadClass(type.getName() + "$StaplerConverterImpl");
-            c = (Converter)cl.newInstance();
-            CONVERT_UTILS.register(c,type);
-            return c;
+            if(HAS_CONVERTER_IMPL.get(type)) {
+                Class<?> cl = type.getClassLoader().loadClass(type.getName() + "$StaplerConverterImpl");
+                c = (Converter)cl.newInstance();
+                CONVERT_UTILS.register(c,type);
+                return c;
+            }
         } catch (ClassNotFoundException e) {
             // fall through
         } catch (IllegalAccessException e) {
@@ -93,6 +93,20 @@ public interface StaplerResponse extends HttpServletResponse {
 
     void serveFile(StaplerRequest request, URL res, long expiration) throws ServletException, IOException;
 
+    /**
+     * Works like {@link #serveFile(StaplerRequest, URL, long)}, but if the build left a gzipped copy
+     * next to the resource, like "app.js.gz" for "app.js", that is sent as is to the clients that accept gzip.
+     *
+     * <p>
+     * Only use this for the resources that come with the application, such as adjuncts.
+     * Next to user content, an unrelated ".gz" file would be sent in place of the requested one.
+     *
+     * @since TODO
+     */
+    default void servePrecompressedFile(StaplerRequest request, URL res, long expiration) throws ServletException, IOException {
+        serveFile(request, res, expiration);
+    }
+
     /**
      * Works like {@link #serveFile(StaplerRequest, URL)} but chooses the locale specific
      * version of the resource if it's available. The convention of "locale specific version"
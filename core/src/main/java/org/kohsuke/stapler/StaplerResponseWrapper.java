@@ -94,6 +94,12 @@ public abstract class StaplerResponseWrapper implements StaplerResponse {
         getWrapped().serveFile(req, resource);
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public void servePrecompressedFile(StaplerRequest req, URL resource, long expiration) throws ServletException, IOException {
+        getWrapped().servePrecompressedFile(req, resource, expiration);
+    }
+
     /** {@inheritDoc} */
     @Override
     public void serveLocalizedFile(StaplerRequest request, URL res) throws ServletException, IOException {
@@ -0,0 +1,104 @@
+package org.kohsuke.stapler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps static resources in memory, along with what's needed to serve them,
+ * so that the frequently requested ones don't need to be looked up, read, and compressed every time.
+ *
+ * <p>
+ * The least recently used entries are evicted to keep the total size within the limit.
+ *
+ * @see Stapler#STATIC_RESOURCE_CACHE_SIZE
+ */
+final class StaticResourceCache {
+    private final long maxSize;
+    private long size;
+    private final LinkedHashMap<String,Entry> entries = new LinkedHashMap<String,Entry>(16,0.75f,true);
+
+    StaticResourceCache(long maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Can a resource of this size be cached? Bigger ones are streamed as usual,
+     * so that a few of them don't push everything else out.
+     */
+    boolean accepts(long contentLength) {
+        return contentLength>=0 && contentLength<=maxSize/16;
+    }
+
+    synchronized Entry get(String key) {
+        return entries.get(key);
+    }
+
+    synchronized void put(String key, Entry e) {
+        Entry old = entries.put(key, e);
+        if (old!=null)
+            size -= old.size();
+        size += e.size();
+
+        for (Iterator<Entry> itr = entries.values().iterator(); size>maxSize && itr.hasNext(); ) {
+            size -= itr.next().size();
+            itr.remove();
+        }
+    }
+
+    synchronized void clear() {
+        entries.clear();
+        size = 0;
+    }
+
+    static final class Entry {
+        final byte[] data;
+        /**
+         * {@link #data} compressed by gzip, or null if it's not worth compressing.
+         */
+        final byte[] gzipped;
+        /**
+         * True if {@link #gzipped} came from the gzipped copy next to the resource,
+         * which is used regardless of the content type.
+         */
+        final boolean precompressed;
+        final String mimeType;
+        final long lastModified;
+        /**
+         * Name of the resource, to serve it the usual way when the request is more than a plain GET.
+         */
+        final String fileName;
+
+        Entry(byte[] data, boolean text, String mimeType, long lastModified, String fileName) throws IOException {
+            this(data, text, null, mimeType, lastModified, fileName);
+        }
+
+        /**
+         * @param precompressed
+         *      The gzipped copy of the resource, if there's one.
+         */
+        Entry(byte[] data, boolean text, byte[] precompressed, String mimeType, long lastModified, String fileName) throws IOException {
+            this.data = data;
+            this.precompressed = precompressed!=null;
+            this.gzipped = precompressed!=null ? precompressed : text ? gzip(data) : null;
+            this.mimeType = mimeType;
+            this.lastModified = lastModified;
+            this.fileName = fileName;
+        }
+
+        private long size() {
+            return data.length + (gzipped!=null ? gzipped.length : 0);
+        }
+
+        private static byte[] gzip(byte[] data) throws IOException {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream(data.length/2);
+            GZIPOutputStream gz = new GZIPOutputStream(buf);
+            gz.write(data);
+            gz.close();
+            return buf.size()<data.length ? buf.toByteArray() : null;
+        }
+    }
+}
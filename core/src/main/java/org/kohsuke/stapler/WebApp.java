@@ -39,7 +39,6 @@ import javax.servlet.ServletContext;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Vector;
 import java.util.Hashtable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -92,9 +91,10 @@ public class WebApp {
     /**
      * Activated facets.
      *
-     * TODO: is this really mutable?
+     * This is consulted on every dispatch step but rarely changes after initialization,
+     * hence copy-on-write.
      */
-    public final List<Facet> facets = new Vector<Facet>();
+    public final List<Facet> facets = new CopyOnWriteArrayList<Facet>();
 
     /**
      * Global {@link BindInterceptor}s.
@@ -119,8 +119,13 @@ public class WebApp {
      * All {@link MetaClass}es.
      *
      * Note that this permanently holds a strong reference to its key, i.e. is a memory leak.
+     *
+     * Look-ups are lock-free. Creation of new entries is serialized by {@link #classMapLock}
+     * so that each {@link Klass} gets exactly one {@link MetaClass}.
      */
-    private final Map<Klass<?>,MetaClass> classMap = new HashMap<Klass<?>,MetaClass>();
+    private final ConcurrentMap<Klass<?>,MetaClass> classMap = new ConcurrentHashMap<Klass<?>,MetaClass>();
+
+    private final Object classMapLock = new Object();
 
     /**
      * Handles objects that are exported.
@@ -224,8 +229,13 @@ public class WebApp {
     
     public MetaClass getMetaClass(Klass<?> c) {
         if(c==null)     return null;
-        synchronized(classMap) {
-            MetaClass mc = classMap.get(c);
+        MetaClass mc = classMap.get(c);
+        if(mc!=null)    return mc;
+
+        // constructing MetaClass recursively asks for the base class, so this needs to be a reentrant lock,
+        // not ConcurrentMap.computeIfAbsent
+        synchronized(classMapLock) {
+            mc = classMap.get(c);
             if(mc==null) {
                 mc = new MetaClass(this,c);
                 classMap.put(c,mc);
@@ -270,12 +280,10 @@ public class WebApp {
      * @see MetaClass#NO_CACHE
      */
     public void clearScripts(Class<? extends AbstractTearOff> clazz) {
-        synchronized (classMap) {
-            for (MetaClass v : classMap.values()) {
-                AbstractTearOff t = v.getTearOff(clazz);
-                if (t!=null)
-                    t.clearScripts();
-            }
+        for (MetaClass v : classMap.values()) {
+            AbstractTearOff t = v.getTearOff(clazz);
+            if (t!=null)
+                t.clearScripts();
         }
     }
     
@@ -287,9 +295,7 @@ public class WebApp {
      * this call should not be called too often
      */
     public void clearMetaClassCache(){
-        synchronized (classMap) {
-            classMap.clear();
-        }
+        classMap.clear();
     }
 
     void addStaplerServlet(String servletName, Stapler servlet) {
@@ -0,0 +1,205 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+
+/**
+ * Counts what's written against an {@link ExportBudget}, and throws {@link ExportBudgetExceededException}
+ * once it's used up.
+ *
+ * <p>
+ * Also keeps track of which objects and arrays are open, so that the output can be ended cleanly
+ * when {@linkplain ExportBudget#isTruncation() truncating}.
+ */
+final class BudgetDataWriter implements DataWriter {
+    final ExportBudget budget;
+    private final DataWriter out;
+    private final long start = System.nanoTime();
+
+    private int objects;
+    private long output;
+    /**
+     * Set once the budget is exceeded, so that the same exception is thrown again if writing goes on.
+     */
+    private ExportBudgetExceededException exceeded;
+
+    /**
+     * For each open object or array from the outermost one, true if it's an object.
+     */
+    private boolean[] open = new boolean[16];
+    private int depth;
+    /**
+     * True if {@link #name(String)} was written but its value hasn't been.
+     */
+    private boolean needValue;
+
+    /**
+     * {@link #depth} and {@link #needValue} at each outstanding {@link #mark()}.
+     */
+    private int[] markedDepth = new int[8];
+    private boolean[] markedNeedValue = new boolean[8];
+
+    BudgetDataWriter(ExportBudget budget, DataWriter out) {
+        this.budget = budget;
+        this.out = out;
+    }
+
+    @Override
+    public @Nonnull ExportConfig getExportConfig() {
+        return out.getExportConfig();
+    }
+
+    public void name(String name) throws IOException {
+        charge(name.length()+4);
+        out.name(name);
+        needValue = true;
+    }
+
+    @Override
+    public void name(Property property) throws IOException {
+        charge(property.name.length()+4);
+        out.name(property);
+        needValue = true;
+    }
+
+    public void valuePrimitive(Object v) throws IOException {
+        charge(PRIMITIVE_SIZE);
+        out.valuePrimitive(v);
+        needValue = false;
+    }
+
+    public void value(String v) throws IOException {
+        charge(v.length()+2);
+        out.value(v);
+        needValue = false;
+    }
+
+    public void valueNull() throws IOException {
+        charge(4);
+        out.valueNull();
+        needValue = false;
+    }
+
+    public void startArray() throws IOException {
+        charge(1);
+        out.startArray();
+        push(false);
+    }
+
+    public void endArray() throws IOException {
+        out.endArray();
+        depth--;
+    }
+
+    @Override
+    public void type(Type expected, Class actual) throws IOException {
+        out.type(expected, actual);
+    }
+
+    public void startObject() throws IOException {
+        if (objects==budget.getMaxObjects())
+            throw exceeded("Exceeded the limit of "+budget.getMaxObjects()+" objects");
+        if (System.nanoTime()-start>budget.getMaxTimeNanos())
+            throw exceeded("Exceeded the time limit of "+budget.getMaxTime()+"ms");
+        charge(1);
+        objects++;
+        out.startObject();
+        push(true);
+    }
+
+    public void endObject() throws IOException {
+        out.endObject();
+        depth--;
+    }
+
+    @Override
+    public int mark() throws IOException {
+        int mark = out.mark();
+        if (mark>=0) {
+            if (mark>=markedDepth.length) {
+                markedDepth = Arrays.copyOf(markedDepth, mark*2);
+                markedNeedValue = Arrays.copyOf(markedNeedValue, mark*2);
+            }
+            markedDepth[mark] = depth;
+            markedNeedValue[mark] = needValue;
+        }
+        return mark;
+    }
+
+    @Override
+    public void commit(int mark) throws IOException {
+        out.commit(mark);
+    }
+
+    @Override
+    public void rollback(int mark) throws IOException {
+        out.rollback(mark);
+        depth = markedDepth[mark];
+        needValue = markedNeedValue[mark];
+    }
+
+    private void push(boolean object) {
+        if (depth==open.length)
+            open = Arrays.copyOf(open, depth*2);
+        open[depth++] = object;
+        needValue = false;
+    }
+
+    private void charge(int size) {
+        if (exceeded!=null)
+            throw exceeded;
+        output += size;
+        if (output>budget.getMaxOutput())
+            throw exceeded("Exceeded the output limit of "+budget.getMaxOutput()+" characters");
+    }
+
+    private ExportBudgetExceededException exceeded(String message) {
+        if (exceeded==null)
+            exceeded = budget.exceeded(message);
+        return exceeded;
+    }
+
+    /**
+     * Closes everything that's open, and adds the marker to the outermost value.
+     */
+    void truncate(String reason) throws IOException {
+        if (needValue)
+            out.valueNull();
+        needValue = false;
+        if (depth==0) {
+            // nothing was written at all
+            writeMarkerObject(reason);
+            return;
+        }
+        while (depth>0) {
+            boolean object = open[--depth];
+            if (depth==0) {
+                if (object) {
+                    out.name(ExportBudget.TRUNCATED_PROPERTY_NAME);
+                    out.value(reason);
+                } else {
+                    writeMarkerObject(reason);
+                }
+            }
+            if (object)
+                out.endObject();
+            else
+                out.endArray();
+        }
+    }
+
+    private void writeMarkerObject(String reason) throws IOException {
+        out.type(null,null);
+        out.startObject();
+        out.name(ExportBudget.TRUNCATED_PROPERTY_NAME);
+        out.value(reason);
+        out.endObject();
+    }
+
+    /**
+     * Rough size of a number or a boolean, to avoid formatting it just to measure.
+     */
+    private static final int PRIMITIVE_SIZE = 8;
+}
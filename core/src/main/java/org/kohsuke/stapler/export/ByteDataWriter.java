@@ -0,0 +1,155 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Base class of the {@link DataWriter}s that encode straight into a byte buffer.
+ *
+ * <p>
+ * The buffer is written to the stream when it fills up and when the top-level value is complete,
+ * so there's no need to flush these writers. {@link #mark()} is supported by holding on to the buffer
+ * until the outermost mark is ended.
+ */
+abstract class ByteDataWriter implements DataWriter {
+    private final OutputStream out;
+    final ExportConfig config;
+
+    byte[] buf;
+    int len;
+
+    /**
+     * The class attribute from {@link #type(Type, Class)} that the next object is to be written with.
+     */
+    String classAttr;
+    /**
+     * Number of objects and arrays that are currently open.
+     */
+    int nesting;
+
+    /**
+     * {@link #len} at the time of each outstanding {@link #mark()}, and other states to restore.
+     * While there's any mark, {@link #buf} is never written out.
+     */
+    private final List<State> marks = new ArrayList<>();
+    private int markDepth;
+
+    ByteDataWriter(OutputStream out, ExportConfig config, int bufferSize) {
+        this.out = out;
+        this.config = config;
+        this.buf = new byte[bufferSize];
+    }
+
+    @Override
+    public @Nonnull ExportConfig getExportConfig() {
+        return config;
+    }
+
+    @Override
+    public void type(Type expected, Class actual) throws IOException {
+        classAttr = config.getClassAttribute().print(expected, actual);
+    }
+
+    @Override
+    public int mark() {
+        if (markDepth==marks.size())
+            marks.add(createState());
+        save(marks.get(markDepth));
+        return markDepth++;
+    }
+
+    @Override
+    public void commit(int mark) throws IOException {
+        pop(mark).classAttr = null;
+        done();
+    }
+
+    @Override
+    public void rollback(int mark) {
+        State s = pop(mark);
+        restore(s);
+        s.classAttr = null;
+    }
+
+    /**
+     * Whether there's any outstanding {@link #mark()}, in which case nothing is written to the stream yet.
+     */
+    boolean isMarked() {
+        return markDepth>0;
+    }
+
+    private State pop(int mark) {
+        if (mark!=markDepth-1)
+            throw new IllegalStateException("Expected to end mark "+(markDepth-1)+" but got "+mark);
+        return marks.get(--markDepth);
+    }
+
+    /**
+     * Subtypes that have more to restore on {@link #rollback(int)} extend {@link State} and override
+     * this, {@link #save(State)} and {@link #restore(State)}.
+     */
+    State createState() {
+        return new State();
+    }
+
+    void save(State s) {
+        s.len = len;
+        s.nesting = nesting;
+        s.classAttr = classAttr;
+    }
+
+    void restore(State s) {
+        len = s.len;
+        nesting = s.nesting;
+        classAttr = s.classAttr;
+    }
+
+    static class State {
+        int len;
+        int nesting;
+        String classAttr;
+    }
+
+    /**
+     * Called when a value is complete. If that's the top-level value, pass everything on to the stream.
+     */
+    final void done() throws IOException {
+        if (nesting==0 && markDepth==0)
+            flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (len>0) {
+            out.write(buf,0,len);
+            len = 0;
+        }
+    }
+
+    /**
+     * Makes room for n more bytes in the buffer.
+     */
+    final void ensure(int n) throws IOException {
+        if (len+n<=buf.length)
+            return;
+        if (markDepth==0)
+            flushBuffer();  // can't discard what's before the mark
+        if (len+n>buf.length)
+            buf = Arrays.copyOf(buf, Math.max(buf.length*2, len+n));
+    }
+
+    final void write(byte b) throws IOException {
+        ensure(1);
+        buf[len++] = b;
+    }
+
+    final void write(byte[] b) throws IOException {
+        ensure(b.length);
+        System.arraycopy(b,0,buf,len,b.length);
+        len += b.length;
+    }
+}
@@ -0,0 +1,28 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.CheckForNull;
+
+/**
+ * Interface that an {@link ExportedBean} can implement to have what it writes cached
+ * by {@link ExportCache}, so that the object graph isn't walked again every time it's exported.
+ *
+ * <p>
+ * This is meant for objects whose exported data doesn't change, or changes rarely, like
+ * records of completed work.
+ *
+ * @since TODO
+ */
+public interface CacheableExportedBean {
+    /**
+     * Returns a token that identifies the current exported data of this object, such as
+     * the object itself if it never changes, or a combination of an ID and a version number.
+     *
+     * <p>
+     * Two objects of the same class with equal tokens are assumed to write the same data.
+     * The token is held by the cache, so it shouldn't be anything big.
+     *
+     * @return
+     *      null to not use the cache this time, for example because the object is still changing.
+     */
+    @CheckForNull Object getExportCacheToken();
+}
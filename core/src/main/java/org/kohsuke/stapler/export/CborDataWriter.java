@@ -0,0 +1,134 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes <a href="https://www.rfc-editor.org/rfc/rfc8949">CBOR</a>.
+ *
+ * <p>
+ * Objects become maps with text string keys and arrays become arrays, both of indefinite length
+ * since the number of items isn't known up front. Integral numbers are written in the smallest encoding,
+ * floating point numbers as they are, and other values as in JSON. The class attribute is written
+ * as the {@link #CLASS_PROPERTY_NAME} entry, like {@link JSONDataWriter} does.
+ */
+final class CborDataWriter extends ByteDataWriter {
+    CborDataWriter(OutputStream out, ExportConfig config) {
+        super(out, config, 8192);
+    }
+
+    public void name(String name) throws IOException {
+        writeString(name);
+    }
+
+    public void valuePrimitive(Object v) throws IOException {
+        if (v instanceof Integer || v instanceof Long || v instanceof Short || v instanceof Byte) {
+            long l = ((Number)v).longValue();
+            if (l>=0)   writeHead(MAJOR_UNSIGNED, l);
+            else        writeHead(MAJOR_NEGATIVE, -1-l);
+        } else if (v instanceof Double) {
+            ensure(9);
+            buf[len++] = (byte)0xFB;
+            writeBits(Double.doubleToRawLongBits((Double)v), 8);
+        } else if (v instanceof Float) {
+            ensure(5);
+            buf[len++] = (byte)0xFA;
+            writeBits(Float.floatToRawIntBits((Float)v), 4);
+        } else if (v instanceof Boolean) {
+            write((Boolean)v ? TRUE : FALSE);
+        } else {
+            writeString(v.toString());
+        }
+        done();
+    }
+
+    public void value(String v) throws IOException {
+        writeString(v);
+        done();
+    }
+
+    public void valueNull() throws IOException {
+        write(NULL);
+        done();
+    }
+
+    public void startArray() throws IOException {
+        write(START_ARRAY);
+        nesting++;
+    }
+
+    public void endArray() throws IOException {
+        write(BREAK);
+        nesting--;
+        done();
+    }
+
+    public void startObject() throws IOException {
+        write(START_MAP);
+        nesting++;
+
+        if (classAttr!=null) {
+            writeString(CLASS_PROPERTY_NAME);
+            writeString(classAttr);
+            classAttr = null;
+        }
+    }
+
+    public void endObject() throws IOException {
+        write(BREAK);
+        nesting--;
+        done();
+    }
+
+    private void writeString(String s) throws IOException {
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        writeHead(MAJOR_TEXT, b.length);
+        write(b);
+    }
+
+    /**
+     * Writes the initial byte of a data item and its argument, in the shortest form.
+     *
+     * @param v
+     *      The argument, treated as unsigned.
+     */
+    private void writeHead(int major, long v) throws IOException {
+        ensure(9);
+        int m = major<<5;
+        if (v>=0 && v<24) {
+            buf[len++] = (byte)(m|(int)v);
+        } else if (v>=0 && v<0x100) {
+            buf[len++] = (byte)(m|24);
+            writeBits(v, 1);
+        } else if (v>=0 && v<0x10000) {
+            buf[len++] = (byte)(m|25);
+            writeBits(v, 2);
+        } else if (v>=0 && v<0x100000000L) {
+            buf[len++] = (byte)(m|26);
+            writeBits(v, 4);
+        } else {
+            buf[len++] = (byte)(m|27);
+            writeBits(v, 8);
+        }
+    }
+
+    /**
+     * Writes the lower n bytes of v in the network byte order.
+     */
+    private void writeBits(long v, int n) {
+        for (int i=n-1; i>=0; i--)
+            buf[len++] = (byte)(v>>>(i*8));
+    }
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_TEXT = 3;
+
+    private static final byte START_ARRAY = (byte)0x9F;
+    private static final byte START_MAP = (byte)0xBF;
+    private static final byte BREAK = (byte)0xFF;
+    private static final byte FALSE = (byte)0xF4;
+    private static final byte TRUE = (byte)0xF5;
+    private static final byte NULL = (byte)0xF6;
+}
@@ -49,6 +49,16 @@ import java.lang.reflect.Type;
 public interface DataWriter {
     void name(String name) throws IOException;
 
+    /**
+     * Writes the name of an exported property, same as {@code name(property.name)}.
+     * Writers that can reuse what they derived from the same name before override this.
+     *
+     * @since TODO
+     */
+    default void name(Property property) throws IOException {
+        name(property.name);
+    }
+
     void valuePrimitive(Object v) throws IOException;
     void value(String v) throws IOException;
     void valueNull() throws IOException;
@@ -74,6 +84,36 @@ public interface DataWriter {
         return new ExportConfig();
     }
 
+    /**
+     * Marks the current point of the output, so that what's written after this can be
+     * undone by {@link #rollback(int)}, for example when the value being written fails half way.
+     *
+     * <p>
+     * Marks nest, and every mark must be ended by {@link #commit(int)} or {@link #rollback(int)},
+     * the innermost one first.
+     *
+     * @return
+     *      A token to pass to {@link #commit(int)} or {@link #rollback(int)},
+     *      or -1 if this writer doesn't support rolling back.
+     * @since TODO
+     */
+    default int mark() throws IOException {
+        return -1;
+    }
+
+    /**
+     * Keeps what has been written since the given {@link #mark()}.
+     */
+    default void commit(int mark) throws IOException {}
+
+    /**
+     * Discards what has been written since the given {@link #mark()},
+     * and puts this writer back to the state it was in at that point.
+     */
+    default void rollback(int mark) throws IOException {
+        throw new UnsupportedOperationException();
+    }
+
     /**
      * Recommended property name to write out the 'type' parameter of {@link #type(Type,Class)}
      */
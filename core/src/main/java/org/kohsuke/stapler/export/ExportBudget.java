@@ -0,0 +1,142 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how much work a single export can do, so that a careless {@code depth} or {@code tree}
+ * against a large object graph doesn't tie up the server.
+ *
+ * <p>
+ * The limits are the number of objects written, the size of the output, and the time spent.
+ * When one is exceeded, the export either fails with {@link ExportBudgetExceededException},
+ * or, {@linkplain #withTruncation(boolean) if so configured}, ends cleanly with what's been written so far,
+ * with the {@link #TRUNCATED_PROPERTY_NAME} property added to the top-level object.
+ *
+ * <p>
+ * Set via {@link ExportConfig#withBudget(ExportBudget)}, typically sharing one instance across requests.
+ * The usage is counted for each {@link Model#writeTo(Object, TreePruner, DataWriter)} call.
+ * Instances are immutable, except for the {@linkplain #getExceeded() count of exceeded exports}:
+ * the {@code withXyz} methods return a new budget, which starts counting from zero.
+ *
+ * @since TODO
+ */
+public final class ExportBudget {
+    private final int maxObjects;
+    private final long maxOutput;
+    private final long maxTime;
+    private final boolean truncation;
+
+    private final AtomicLong exceeded = new AtomicLong();
+
+    /**
+     * Creates a budget with no limits, which the {@code withXyz} methods derive actual budgets from.
+     */
+    public ExportBudget() {
+        this(Integer.MAX_VALUE, Long.MAX_VALUE, Long.MAX_VALUE, false);
+    }
+
+    private ExportBudget(int maxObjects, long maxOutput, long maxTime, boolean truncation) {
+        this.maxObjects = maxObjects;
+        this.maxOutput = maxOutput;
+        this.maxTime = maxTime;
+        this.truncation = truncation;
+    }
+
+    public int getMaxObjects() {
+        return maxObjects;
+    }
+
+    /**
+     * Maximum number of objects to write, counting every object and map.
+     */
+    public ExportBudget withMaxObjects(int maxObjects) {
+        return new ExportBudget(maxObjects, maxOutput, maxTime, truncation);
+    }
+
+    public long getMaxOutput() {
+        return maxOutput;
+    }
+
+    /**
+     * Maximum size of the output, in characters. This is estimated from the names and the values written,
+     * independently of the {@link Flavor}, so it's only approximately the number of bytes that go out.
+     */
+    public ExportBudget withMaxOutput(long maxOutput) {
+        return new ExportBudget(maxObjects, maxOutput, maxTime, truncation);
+    }
+
+    /**
+     * Maximum time to spend, in milliseconds.
+     */
+    public long getMaxTime() {
+        return TimeUnit.NANOSECONDS.toMillis(maxTime);
+    }
+
+    public ExportBudget withMaxTime(long time, TimeUnit unit) {
+        return new ExportBudget(maxObjects, maxOutput, unit.toNanos(time), truncation);
+    }
+
+    public boolean isTruncation() {
+        return truncation;
+    }
+
+    /**
+     * If true, an export that exceeds the budget ends with what's been written so far,
+     * instead of failing with {@link ExportBudgetExceededException}.
+     */
+    public ExportBudget withTruncation(boolean truncation) {
+        return new ExportBudget(maxObjects, maxOutput, maxTime, truncation);
+    }
+
+    /**
+     * Number of times an export exceeded this budget.
+     */
+    public long getExceeded() {
+        return exceeded.get();
+    }
+
+    /**
+     * Returns a writer that counts what's written through it against this budget.
+     *
+     * <p>
+     * {@link Model#writeTo(Object, TreePruner, DataWriter)} does this by itself. This is for writing
+     * several top-level objects within one budget, such as the items of an array, passing the returned writer
+     * to each {@link Model#writeTo(Object, TreePruner, DataWriter)} call.
+     * Use {@link #end(DataWriter, ExportBudgetExceededException)} when that fails.
+     */
+    public DataWriter limit(DataWriter writer) {
+        if (writer instanceof BudgetDataWriter && ((BudgetDataWriter) writer).budget==this)
+            return writer;
+        return new BudgetDataWriter(this, writer);
+    }
+
+    /**
+     * Ends the output of a writer returned from {@link #limit(DataWriter)} after it exceeded this budget.
+     *
+     * <p>
+     * If {@linkplain #isTruncation() truncating}, the objects and arrays that are still open are closed,
+     * with {@link #TRUNCATED_PROPERTY_NAME} added to the outermost one. Otherwise the exception is rethrown.
+     */
+    public void end(DataWriter limited, ExportBudgetExceededException x) throws IOException {
+        if (!truncation || !(limited instanceof BudgetDataWriter))
+            throw x;
+        ((BudgetDataWriter) limited).truncate(x.getMessage());
+    }
+
+    /*package*/ ExportBudgetExceededException exceeded(String message) {
+        exceeded.incrementAndGet();
+        return new ExportBudgetExceededException(message);
+    }
+
+    /*package*/ long getMaxTimeNanos() {
+        return maxTime;
+    }
+
+    /**
+     * Name of the property that tells that the output was truncated, and why.
+     * If the outermost value is an array, an object with this property is added as the last item instead.
+     */
+    public static final String TRUNCATED_PROPERTY_NAME = "_truncated";
+}
@@ -0,0 +1,16 @@
+package org.kohsuke.stapler.export;
+
+/**
+ * Signals that writing the exported data went over the {@link ExportBudget}.
+ *
+ * <p>
+ * This is unchecked, so that it isn't swallowed along with the failures of individual
+ * properties when {@linkplain ExportConfig#isSkipIfFail() skipping} them.
+ *
+ * @since TODO
+ */
+public class ExportBudgetExceededException extends RuntimeException {
+    public ExportBudgetExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,136 @@
+package org.kohsuke.stapler.export;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.kohsuke.stapler.export.TreePruner.ByDepth;
+
+import javax.annotation.CheckForNull;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Remembers what {@link CacheableExportedBean}s wrote, so that the same data can be written again
+ * without calling their getters.
+ *
+ * <p>
+ * What's cached is the sequence of {@link DataWriter} calls made for the properties of an object,
+ * which is replayed to the writer on a hit. So a single cache works for every {@link Flavor},
+ * with or without pretty printing, and wherever in the output the object appears.
+ *
+ * <p>
+ * The flip side is that these are not pre-serialized fragments. A hit saves the getters and walking the model,
+ * but the recorded calls still go through the writer, which escapes and encodes them all over again.
+ * Each call is also kept as an object of its own, so an entry takes several times the memory of its output.
+ *
+ * <p>
+ * Entries are keyed by the class and {@linkplain CacheableExportedBean#getExportCacheToken() token}
+ * of the object, the {@link TreePruner}, and the {@link ExportInterceptor} and
+ * {@linkplain ExportConfig#isSkipIfFail() skip-if-fail} setting in use.
+ * Only {@link NamedPathPruner} and {@link ByDepth} are cacheable; with any other pruner,
+ * the object is written as usual. The least recently used entries are evicted beyond the size limit,
+ * and objects that write a lot aren't remembered at all, so that the memory used stays bounded.
+ *
+ * <p>
+ * Set via {@link ExportConfig#withCache(ExportCache)}, typically sharing one instance across requests.
+ *
+ * @since TODO
+ */
+public final class ExportCache {
+    private final Cache<Object,Property.BufferedDataWriter> entries;
+    private final int maxEntrySize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries
+     *      Maximum number of objects to remember. Entries may be evicted a little before the cache is full.
+     */
+    public ExportCache(int maxEntries) {
+        this(maxEntries, DEFAULT_MAX_ENTRY_SIZE);
+    }
+
+    /**
+     * @param maxEntries
+     *      Maximum number of objects to remember.
+     * @param maxEntrySize
+     *      Objects that write more than this aren't remembered. This is roughly the number of characters,
+     *      counting the names and the strings written plus one for each {@link DataWriter} call.
+     */
+    public ExportCache(int maxEntries, int maxEntrySize) {
+        this.entries = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+        this.maxEntrySize = maxEntrySize;
+    }
+
+    /**
+     * Number of times an object was written from the cache.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Number of times a cacheable object was not in the cache and had to be written as usual.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Number of objects currently remembered.
+     */
+    public int size() {
+        return (int) entries.size();
+    }
+
+    public void clear() {
+        entries.invalidateAll();
+    }
+
+    /**
+     * Computes the key for the object, or null if it can't be cached.
+     */
+    /*package*/ @CheckForNull Object keyOf(Model<?> model, CacheableExportedBean object, TreePruner pruner, ExportConfig config) {
+        Object prunerKey;
+        if (pruner instanceof NamedPathPruner)
+            prunerKey = ((NamedPathPruner) pruner).getTree();
+        else if (pruner instanceof ByDepth)
+            prunerKey = ((ByDepth) pruner).n;
+        else
+            return null;
+
+        Object token = object.getExportCacheToken();
+        if (token==null)
+            return null;
+
+        return Arrays.asList(model, token, prunerKey, config.getExportInterceptor(), config.isSkipIfFail());
+    }
+
+    /*package*/ @CheckForNull Property.BufferedDataWriter get(Object key) {
+        Property.BufferedDataWriter w = entries.getIfPresent(key);
+        (w!=null ? hits : misses).incrementAndGet();
+        return w;
+    }
+
+    /*package*/ void put(Object key, Property.BufferedDataWriter w) {
+        if (sizeOf(w)<=maxEntrySize)
+            entries.put(key, w);
+    }
+
+    private static long sizeOf(Property.BufferedDataWriter w) {
+        long size = 0;
+        for (Property.BufferedDataWriter.Step step : w.steps) {
+            size++;
+            for (Object arg : step.args) {
+                if (arg instanceof String)
+                    size += ((String) arg).length();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Default of the maximum size of an object to remember, see {@link #ExportCache(int, int)}.
+     */
+    public static final int DEFAULT_MAX_ENTRY_SIZE = 16*1024;
+}
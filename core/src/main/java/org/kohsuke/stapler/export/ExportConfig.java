@@ -16,6 +16,12 @@ public class ExportConfig {
 
     private ExportInterceptor exportInterceptor = ExportInterceptor.DEFAULT;
 
+    private ExportPrefetcher prefetcher;
+
+    private ExportCache cache;
+
+    private ExportBudget budget;
+
     private boolean skipIfFail = false;
 
     private Flavor flavor = Flavor.JSON;
@@ -60,6 +66,57 @@ public class ExportConfig {
         return this;
     }
 
+    /**
+     * Loads the data of collections in bulk, or null to not do that.
+     *
+     * @since TODO
+     */
+    public ExportPrefetcher getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * @since TODO
+     */
+    public ExportConfig withPrefetcher(ExportPrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+        return this;
+    }
+
+    /**
+     * Remembers what {@link CacheableExportedBean}s write, or null to not do that.
+     *
+     * @since TODO
+     */
+    public ExportCache getCache() {
+        return cache;
+    }
+
+    /**
+     * @since TODO
+     */
+    public ExportConfig withCache(ExportCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+    /**
+     * Limits how much work an export can do, or null to not limit it.
+     *
+     * @since TODO
+     */
+    public ExportBudget getBudget() {
+        return budget;
+    }
+
+    /**
+     * @since TODO
+     */
+    public ExportConfig withBudget(ExportBudget budget) {
+        this.budget = budget;
+        return this;
+    }
+
     public ExportConfig withSkipIfFail(boolean skipIfFail){
         this.skipIfFail = skipIfFail;
         return this;
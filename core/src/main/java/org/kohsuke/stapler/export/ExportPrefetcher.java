@@ -0,0 +1,40 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Gets a chance to load the data of a whole collection of {@link ExportedBean}s in one go,
+ * before their properties are written one object at a time.
+ *
+ * <p>
+ * When the getters of an exported bean load their data lazily, say from disk, writing a collection of
+ * N beans costs N round trips. If the application knows how to load many records at once,
+ * it can do that here and have the getters find the data already loaded.
+ *
+ * <p>
+ * Set via {@link ExportConfig#withPrefetcher(ExportPrefetcher)}. Collections are arrays,
+ * {@link Iterable}s and {@link RangeAware}s; the items are grouped by their class,
+ * and this is called once per class.
+ *
+ * @since TODO
+ */
+public abstract class ExportPrefetcher {
+    /**
+     * Called before the items of a collection are written.
+     *
+     * @param model
+     *      Model of the items.
+     * @param items
+     *      The items of this class that are going to be written, in order,
+     *      after the {@link Range} is applied.
+     * @param properties
+     *      The properties that the {@link TreePruner} is going to write for each item,
+     *      including the ones inherited from {@linkplain Model#superModel super classes}.
+     *      Properties of nested objects are prefetched separately when they are written.
+     * @throws IOException
+     *      to abort writing. If the data just couldn't be prefetched, simply return and
+     *      let the getters load it as usual.
+     */
+    public abstract <T> void prefetch(Model<T> model, List<? extends T> items, List<Property> properties, ExportConfig config) throws IOException;
+}
@@ -23,7 +23,12 @@
 
 package org.kohsuke.stapler.export;
 
+import org.kohsuke.stapler.MethodHandleFactory;
+
+import java.lang.invoke.MethodHandle;
 import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 
 /**
@@ -32,10 +37,12 @@ import java.lang.reflect.Type;
  */
 class FieldProperty extends Property {
     private final Field field;
+    private final MethodHandle handle;
 
     public FieldProperty(Model owner, Field field, Exported exported) {
         super(owner, field.getName(), field.getGenericType(), exported);
         this.field = field;
+        this.handle = getter(MethodHandleFactory.getter(field), Modifier.isStatic(field.getModifiers()));
     }
 
     public Type getGenericType() {
@@ -50,7 +57,11 @@ class FieldProperty extends Property {
         return parent.getJavadoc().getProperty(field.getName());
     }
 
-    public Object getValue(Object object) throws IllegalAccessException {
-        return field.get(object);
+    public Object getValue(Object object) throws IllegalAccessException, InvocationTargetException {
+        try {
+            return (Object)handle.invokeExact(object);
+        } catch (Throwable throwable) {
+            throw new InvocationTargetException(throwable);
+        }
     }
 }
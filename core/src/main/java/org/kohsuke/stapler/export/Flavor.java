@@ -24,9 +24,14 @@
 package org.kohsuke.stapler.export;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 
 import org.kohsuke.stapler.StaplerResponse;
+import org.kohsuke.stapler.framework.io.WriterOutputStream;
+
+import javax.annotation.CheckForNull;
 
 /**
  * Export flavor.
@@ -38,11 +43,21 @@ public enum Flavor {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
             return new JSONDataWriter(w,config);
         }
+
+        @Override
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new Utf8JSONDataWriter(out,config);
+        }
     },
     JSONP("application/javascript;charset=UTF-8") {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
             return new JSONDataWriter(w,config);
         }
+
+        @Override
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new Utf8JSONDataWriter(out,config);
+        }
     },
     PYTHON("text/x-python;charset=UTF-8") {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
@@ -58,10 +73,49 @@ public enum Flavor {
         public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
             return new XMLDataWriter(bean,w,config);
         }
+    },
+    /**
+     * Binary JSON-like format, see {@link CborDataWriter}. Only writes to an {@link OutputStream};
+     * given a {@link Writer}, this writes {@link #JSON} instead, which the caller needs to label as such.
+     *
+     * @since TODO
+     */
+    CBOR("application/cbor") {
+        @Override
+        public DataWriter createDataWriter(Object bean, StaplerResponse rsp) throws IOException {
+            return createDataWriter(bean,rsp.getOutputStream(),new ExportConfig().withFlavor(this));
+        }
+
+        public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
+            return JSON.createDataWriter(bean,w,config);
+        }
+
+        @Override
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new CborDataWriter(out,config);
+        }
+    },
+    /**
+     * Newline-delimited JSON, see {@link NdjsonDataWriter}. The items of a top-level array are
+     * written one per line, so that clients can start processing them before the whole response arrives.
+     * With this flavor, {@link org.kohsuke.stapler.StaplerResponse#serveExposedBean(org.kohsuke.stapler.StaplerRequest, Object, ExportConfig)}
+     * also takes an {@link Iterable} of items, which can be produced lazily as they're written.
+     *
+     * @since TODO
+     */
+    NDJSON("application/x-ndjson;charset=UTF-8") {
+        public DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException {
+            return new NdjsonDataWriter(new WriterOutputStream(w,StandardCharsets.UTF_8),config);
+        }
+
+        @Override
+        public DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+            return new NdjsonDataWriter(out,config);
+        }
     };
 
     /**
-     * Content-type of this flavor, including charset "UTF-8".
+     * Content-type of this flavor, including charset "UTF-8" for text formats.
      */
     public final String contentType;
 
@@ -76,4 +130,21 @@ public enum Flavor {
         return createDataWriter(bean,w,new ExportConfig().withFlavor(this));
     }
     public abstract DataWriter createDataWriter(Object bean, Writer w, ExportConfig config) throws IOException;
+
+    /**
+     * Creates a {@link DataWriter} that writes UTF-8 encoded bytes directly to the given stream,
+     * skipping the char-to-byte conversion of going through a {@link Writer}.
+     *
+     * <p>
+     * The returned writer doesn't need to be flushed; the output is passed on to the stream
+     * by the time the top-level value is written.
+     *
+     * @return
+     *      null if this flavor doesn't write to a stream directly, in which case
+     *      {@link #createDataWriter(Object, Writer, ExportConfig)} should be used.
+     * @since TODO
+     */
+    public @CheckForNull DataWriter createDataWriter(Object bean, OutputStream out, ExportConfig config) throws IOException {
+        return null;
+    }
 }
@@ -27,6 +27,8 @@ import javax.annotation.Nonnull;
 import java.io.IOException;
 import java.io.Writer;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * JSON writer.
@@ -41,8 +43,17 @@ class JSONDataWriter implements DataWriter {
     private int indent;
     private String classAttr;
 
+    /**
+     * {@link #out}, which holds back the output while there's a {@link #mark()}.
+     */
+    private final MarkableWriter markable;
+    /**
+     * State of this writer at each outstanding {@link #mark()}, reused across marks.
+     */
+    private final List<State> marks = new ArrayList<>();
+
     JSONDataWriter(Writer out, ExportConfig config) throws IOException {
-        this.out = out;
+        this.out = this.markable = new MarkableWriter(out);
         this.config = config;
         indent = config.isPrettyPrint() ? 0 : -1;
     }
@@ -187,6 +198,40 @@ class JSONDataWriter implements DataWriter {
         close('}');
     }
 
+    @Override
+    public int mark() throws IOException {
+        int mark = markable.mark();
+        if (mark==marks.size())
+            marks.add(new State());
+        State s = marks.get(mark);
+        s.needComma = needComma;
+        s.indent = indent;
+        s.classAttr = classAttr;
+        return mark;
+    }
+
+    @Override
+    public void commit(int mark) throws IOException {
+        markable.commit(mark);
+        marks.get(mark).classAttr = null;
+    }
+
+    @Override
+    public void rollback(int mark) throws IOException {
+        markable.rollback(mark);
+        State s = marks.get(mark);
+        needComma = s.needComma;
+        indent = s.indent;
+        classAttr = s.classAttr;
+        s.classAttr = null;
+    }
+
+    private static final class State {
+        boolean needComma;
+        int indent;
+        String classAttr;
+    }
+
     private static final char[] INDENT = new char[32];
     static {
         for (int i=0; i<INDENT.length; i++)
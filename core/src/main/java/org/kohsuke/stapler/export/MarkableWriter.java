@@ -0,0 +1,118 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * {@link Writer} that holds back the output written after a {@linkplain #mark() mark},
+ * so that it can be either passed on or thrown away later.
+ *
+ * <p>
+ * Marks nest. Output goes straight to the underlying writer while there's no mark, and
+ * is kept in a buffer that's reused across marks otherwise.
+ *
+ * @see DataWriter#mark()
+ */
+final class MarkableWriter extends Writer {
+    private final Writer out;
+
+    private char[] buf = new char[1024];
+    private int len;
+
+    /**
+     * {@link #len} at the time of each outstanding mark.
+     */
+    private int[] marks = new int[8];
+    private int depth;
+
+    MarkableWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Starts holding back the output.
+     *
+     * @return
+     *      The token to pass to {@link #commit(int)} or {@link #rollback(int)}.
+     */
+    int mark() {
+        if (depth==marks.length)
+            marks = Arrays.copyOf(marks, depth*2);
+        marks[depth] = len;
+        return depth++;
+    }
+
+    /**
+     * Keeps the output since the given mark. If that was the outermost mark, the output is passed on.
+     */
+    void commit(int mark) throws IOException {
+        pop(mark);
+        if (depth==0 && len>0) {
+            int l = len;
+            len = 0;
+            out.write(buf,0,l);
+        }
+    }
+
+    /**
+     * Discards the output since the given mark.
+     */
+    void rollback(int mark) {
+        pop(mark);
+        len = marks[mark];
+    }
+
+    private void pop(int mark) {
+        if (mark!=depth-1)
+            throw new IllegalStateException("Expected to end mark "+(depth-1)+" but got "+mark);
+        depth--;
+    }
+
+    private void ensureCapacity(int n) {
+        if (len+n>buf.length)
+            buf = Arrays.copyOf(buf, Math.max(buf.length*2, len+n));
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (depth==0) {
+            out.write(c);
+        } else {
+            ensureCapacity(1);
+            buf[len++] = (char)c;
+        }
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int l) throws IOException {
+        if (depth==0) {
+            out.write(cbuf,off,l);
+        } else {
+            ensureCapacity(l);
+            System.arraycopy(cbuf,off,buf,len,l);
+            len += l;
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int l) throws IOException {
+        if (depth==0) {
+            out.write(str,off,l);
+        } else {
+            ensureCapacity(l);
+            str.getChars(off,off+l,buf,len);
+            len += l;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
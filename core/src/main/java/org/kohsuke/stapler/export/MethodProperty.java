@@ -29,6 +29,7 @@ import java.beans.Introspector;
 import java.lang.invoke.MethodHandle;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 
 /**
@@ -42,7 +43,7 @@ final class MethodProperty extends Property {
     MethodProperty(Model owner, Method m, Exported exported) {
         super(owner,buildName(m.getName()), m.getGenericReturnType(), exported);
         this.method = m;
-        this.handle = MethodHandleFactory.get(method);
+        this.handle = getter(MethodHandleFactory.get(method), Modifier.isStatic(m.getModifiers()));
     }
 
     private static String buildName(String name) {
@@ -69,7 +70,7 @@ final class MethodProperty extends Property {
 
     public Object getValue(Object object) throws IllegalAccessException, InvocationTargetException {
         try {
-            return handle.invoke(object);
+            return (Object)handle.invokeExact(object);
         } catch (Throwable throwable) {
             throw new InvocationTargetException(throwable);
         }
@@ -41,6 +41,8 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 import com.google.common.base.Predicate;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import org.kohsuke.stapler.export.TreePruner.ByDepth;
 
 /**
@@ -71,6 +73,14 @@ public class Model<T> {
 
     private final Set<String> propertyNames = new HashSet<String>();
 
+    /**
+     * What each {@link NamedPathPruner} tree selects from this model, see {@link NamedPathPruner#select(Model)}.
+     * A tree that's no longer in use goes away with its plan. Bounded as well, since the plan for
+     * a {@linkplain Exported#merge() merged} property refers back to the tree.
+     */
+    /*package*/ final Cache<NamedPathPruner.Tree,Selection[]> plans =
+            CacheBuilder.newBuilder().weakKeys().maximumSize(NamedPathPruner.CACHE_SIZE).build();
+
     /*package*/ Model(ModelBuilder parent, Class<T> type, @CheckForNull Class<?> propertyOwner, @Nullable String property) throws NotExportableException {
         this.parent = parent;
         this.type = type;
@@ -189,6 +199,17 @@ public class Model<T> {
      *      Controls which portion of the object graph will be sent to the writer.
      */
     public void writeTo(T object, TreePruner pruner, DataWriter writer) throws IOException {
+        ExportBudget budget = writer.getExportConfig().getBudget();
+        if (budget!=null && !(writer instanceof BudgetDataWriter)) {
+            DataWriter limited = budget.limit(writer);
+            try {
+                writeTo(object, pruner, limited);
+            } catch (ExportBudgetExceededException x) {
+                budget.end(limited, x);
+            }
+            return;
+        }
+
         writer.type(null,object.getClass());
         writer.startObject();
         writeNestedObjectTo(object, pruner, writer);
@@ -215,6 +236,33 @@ public class Model<T> {
     }
 
     void writeNestedObjectTo(T object, TreePruner pruner, DataWriter writer) throws IOException {
+        ExportCache cache = writer.getExportConfig().getCache();
+        if (cache!=null && object instanceof CacheableExportedBean) {
+            Object key = cache.keyOf(this, (CacheableExportedBean) object, pruner, writer.getExportConfig());
+            if (key!=null) {
+                Property.BufferedDataWriter w = cache.get(key);
+                if (w==null) {
+                    w = new Property.BufferedDataWriter(writer.getExportConfig());
+                    writePropertiesTo(object, pruner, w);
+                    cache.put(key, w);
+                }
+                w.commit(writer);
+                return;
+            }
+        }
+
+        writePropertiesTo(object, pruner, writer);
+    }
+
+    private void writePropertiesTo(T object, TreePruner pruner, DataWriter writer) throws IOException {
+        if (pruner instanceof NamedPathPruner) {
+            // the properties to write are worked out once per tree expression
+            for (Selection s : ((NamedPathPruner) pruner).select(this)) {
+                s.property.writeSelected(object, s.child, writer);
+            }
+            return;
+        }
+
         if (superModel != null) {
             superModel.writeNestedObjectTo(object, new FilteringTreePruner(HAS_PROPERTY_NAME,pruner), writer);
         }
@@ -224,5 +272,43 @@ public class Model<T> {
         }
     }
 
+    /**
+     * Works out which properties {@link #writeNestedObjectTo} visits with the given pruner,
+     * and the pruner for each, in the same order.
+     *
+     * @param node
+     *      The object to be written, or null if the pruner doesn't look at the object.
+     */
+    /*package*/ Selection[] select(@Nullable Object node, TreePruner pruner) {
+        List<Selection> r = new ArrayList<Selection>();
+        select(node, pruner, r);
+        return r.toArray(new Selection[r.size()]);
+    }
+
+    private void select(Object node, TreePruner pruner, List<Selection> r) {
+        if (superModel != null) {
+            superModel.select(node, new FilteringTreePruner(HAS_PROPERTY_NAME,pruner), r);
+        }
+
+        for (Property p : properties) {
+            TreePruner child = pruner.accept(node, p);
+            if (child!=null)
+                r.add(new Selection(p,child));
+        }
+    }
+
+    /**
+     * A property to write, along with the pruner for its value.
+     */
+    /*package*/ static final class Selection {
+        final Property property;
+        final TreePruner child;
+
+        Selection(Property property, TreePruner child) {
+            this.property = property;
+            this.child = child;
+        }
+    }
+
     private static final Logger LOGGER = Logger.getLogger(Model.class.getName());
 }
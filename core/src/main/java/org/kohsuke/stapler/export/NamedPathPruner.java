@@ -23,6 +23,9 @@
 
 package org.kohsuke.stapler.export;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.regex.Pattern;
@@ -35,9 +38,42 @@ public final class NamedPathPruner extends TreePruner {
     static class Tree {
         final Map<String,Tree> children = new TreeMap<String,Tree>();
         Range range = Range.ALL;
+        /**
+         * Pruner for this subtree, created on demand and shared since it has no state of its own.
+         */
+        private NamedPathPruner pruner;
+
+        NamedPathPruner pruner() {
+            NamedPathPruner p = pruner;
+            if (p==null)
+                pruner = p = new NamedPathPruner(this);
+            return p;
+        }
+
         public @Override String toString() {return children.toString();}
     }
 
+    /**
+     * Parses the spec, or reuses the result of parsing the same spec recently.
+     * {@link Tree}s are never modified once parsed, so they can be shared.
+     */
+    static Tree parseCached(String spec) throws IllegalArgumentException {
+        Tree t = PARSED.getIfPresent(spec);
+        if (t==null) {
+            t = parse(spec);
+            PARSED.put(spec,t);
+        }
+        return t;
+    }
+
+    /**
+     * Maximum number of parsed specs to keep around.
+     * Clients tend to poll with the same handful of specs over and over.
+     */
+    /*package*/ static final int CACHE_SIZE = Integer.getInteger(NamedPathPruner.class.getName()+".cacheSize", 256);
+
+    private static final Cache<String,Tree> PARSED = CacheBuilder.newBuilder().maximumSize(CACHE_SIZE).build();
+
     // Simple recursive descent parser:
     static Tree parse(String spec) throws IllegalArgumentException {
         Reader r = new Reader(spec);
@@ -167,7 +203,7 @@ public final class NamedPathPruner extends TreePruner {
      * @throws IllegalArgumentException if the syntax is incorrect
      */
     public NamedPathPruner(String spec) throws IllegalArgumentException {
-        this(parse(spec));
+        this(parseCached(spec));
     }
     
     private NamedPathPruner(Tree tree) {
@@ -179,11 +215,26 @@ public final class NamedPathPruner extends TreePruner {
 
         Tree subtree = tree.children.get(prop.name);
         if (subtree==null)  subtree=tree.children.get("*");
-        return subtree != null ? new NamedPathPruner(subtree) : null;
+        return subtree != null ? subtree.pruner() : null;
+    }
+
+    /**
+     * Properties of the given model to write and their pruners, which depend on nothing but the tree.
+     * They are kept in the model, so that the trees, which are cached statically, don't hold on to the models and their classes.
+     */
+    Model.Selection[] select(Model<?> model) {
+        Model.Selection[] s = model.plans.getIfPresent(tree);
+        if (s==null)
+            model.plans.put(tree, s = model.select(null, this));
+        return s;
     }
 
     public @Override Range getRange() {
         return tree.range;
     }
 
+    /*package*/ Tree getTree() {
+        return tree;
+    }
+
 }
@@ -0,0 +1,159 @@
+package org.kohsuke.stapler.export;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes <a href="https://github.com/ndjson/ndjson-spec">newline-delimited JSON</a>.
+ *
+ * <p>
+ * If the top-level value is an array, each of its items is written as JSON on its own line,
+ * without the enclosing array. Anything else is written as a single line.
+ *
+ * <p>
+ * Each line is passed on to the stream as soon as it's complete, and the stream is flushed
+ * every {@link #FLUSH_INTERVAL} milliseconds, so that clients can process the items while
+ * the rest is still being written.
+ */
+final class NdjsonDataWriter implements DataWriter {
+    private final OutputStream out;
+    private final Utf8JSONDataWriter json;
+
+    /**
+     * Number of arrays and objects that are currently open, including the top-level array.
+     */
+    private int nesting;
+    /**
+     * Whether the top-level value is an array, which is split into lines.
+     */
+    private boolean lines;
+    private long lastFlush = System.nanoTime();
+
+    /**
+     * {@link #nesting} at the time of each outstanding {@link #mark()}.
+     */
+    private int[] marks = new int[8];
+
+    NdjsonDataWriter(OutputStream out, ExportConfig config) {
+        this.out = out;
+        // pretty printing would break the one-value-per-line format
+        this.json = new Utf8JSONDataWriter(out, config, false, 8192);
+    }
+
+    @Override
+    public @Nonnull ExportConfig getExportConfig() {
+        return json.getExportConfig();
+    }
+
+    public void name(String name) throws IOException {
+        json.name(name);
+    }
+
+    @Override
+    public void name(Property property) throws IOException {
+        json.name(property);
+    }
+
+    public void valuePrimitive(Object v) throws IOException {
+        json.valuePrimitive(v);
+        endValue();
+    }
+
+    public void value(String v) throws IOException {
+        json.value(v);
+        endValue();
+    }
+
+    public void valueNull() throws IOException {
+        json.valueNull();
+        endValue();
+    }
+
+    public void startArray() throws IOException {
+        if (nesting++==0) {
+            lines = true;
+            return;
+        }
+        json.startArray();
+    }
+
+    public void endArray() throws IOException {
+        if (--nesting==0 && lines) {
+            out.flush();
+            return;
+        }
+        json.endArray();
+        endValue();
+    }
+
+    @Override
+    public void type(Type expected, Class actual) throws IOException {
+        json.type(expected, actual);
+    }
+
+    public void startObject() throws IOException {
+        nesting++;
+        json.startObject();
+    }
+
+    public void endObject() throws IOException {
+        nesting--;
+        json.endObject();
+        endValue();
+    }
+
+    /**
+     * Ends the line if the value just written is an item of the top-level array, or the top-level value itself.
+     */
+    private void endValue() throws IOException {
+        if (nesting==(lines ? 1 : 0)) {
+            json.newLine();
+            flushIfDue();
+        }
+    }
+
+    /**
+     * Flushes the stream if the line just completed is the last one, or if it's been a while.
+     * The line is still in the buffer while it's marked, so that has to wait until it's committed.
+     */
+    private void flushIfDue() throws IOException {
+        if (json.isMarked())
+            return;
+        long now = System.nanoTime();
+        if (nesting==0 || now-lastFlush>=TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL)) {
+            out.flush();
+            lastFlush = now;
+        }
+    }
+
+    @Override
+    public int mark() {
+        int mark = json.mark();
+        if (mark==marks.length)
+            marks = Arrays.copyOf(marks, mark*2);
+        marks[mark] = nesting;
+        return mark;
+    }
+
+    @Override
+    public void commit(int mark) throws IOException {
+        json.commit(mark);
+        if (nesting==(lines ? 1 : 0))
+            flushIfDue();
+    }
+
+    @Override
+    public void rollback(int mark) {
+        json.rollback(mark);
+        nesting = marks[mark];
+    }
+
+    /**
+     * Milliseconds between flushes of the stream while writing the lines of an array.
+     */
+    static final long FLUSH_INTERVAL = 1000;
+}
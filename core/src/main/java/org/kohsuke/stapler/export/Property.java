@@ -24,6 +24,9 @@
 package org.kohsuke.stapler.export;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Array;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Type;
@@ -33,6 +36,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -40,6 +44,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nonnull;
 
+import com.google.common.collect.Lists;
 import org.jvnet.tiger_types.Types;
 import org.kohsuke.stapler.export.TreePruner.ByDepth;
 
@@ -57,6 +62,10 @@ public abstract class Property implements Comparable<Property> {
      * Name of the property.
      */
     public final String name;
+    /**
+     * {@link #name} quoted and encoded for {@link Utf8JSONDataWriter#name(Property)}.
+     */
+    final byte[] jsonName;
     final ModelBuilder owner;
     /**
      * Visibility depth level of this property.
@@ -89,12 +98,18 @@ public abstract class Property implements Comparable<Property> {
     private String[] verboseMap;
 
     private final Type type;
+    /**
+     * Item type of {@link #type} if it's a collection, computed once since it's the common case of {@link #writeValue}.
+     */
+    private final Type itemType;
 
     Property(Model parent, String name, Type type, Exported exported) {
         this.parent = parent;
         this.owner = parent.parent;
         this.name = exported.name().length()>1 ? exported.name() : name;
+        this.jsonName = Utf8JSONDataWriter.encodeName(this.name);
         this.type = type;
+        this.itemType = Types.getTypeArgument(type, 0, null);
         int v = exported.visibility();
         if(v==0)
             v = parent.defaultVisibility;
@@ -127,11 +142,21 @@ public abstract class Property implements Comparable<Property> {
      * @param pruner
      *      Determines how to prune the object graph tree.
      */
-    @SuppressWarnings("unchecked")
     public void writeTo(Object object, TreePruner pruner, DataWriter writer) throws IOException {
         TreePruner child = pruner.accept(object, this);
         if (child==null)        return;
 
+        writeSelected(object, child, writer);
+    }
+
+    /**
+     * Writes this property once the pruner has decided to.
+     *
+     * @param child
+     *      What {@link TreePruner#accept(Object, Property)} returned for this property.
+     */
+    @SuppressWarnings("unchecked")
+    void writeSelected(Object object, TreePruner child, DataWriter writer) throws IOException {
         Object d = writer.getExportConfig().getExportInterceptor().getValue(this,object, writer.getExportConfig());
 
         if ((d==null && skipNull) || d == ExportInterceptor.SKIP) { // don't write anything
@@ -149,7 +174,7 @@ public abstract class Property implements Comparable<Property> {
                 }
             }
         } else {
-            writer.name(name);
+            writer.name(this);
             writeValue(type, d, child, writer);
         }
     }
@@ -169,16 +194,41 @@ public abstract class Property implements Comparable<Property> {
     }
 
     private void writeBuffered(Type expected, Object value, TreePruner pruner, DataWriter writer) throws IOException {
-        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
+        int mark = writer.mark();
+        DataWriter w = mark<0 ? new BufferedDataWriter(writer.getExportConfig()) : writer;
+        boolean done = false;
         try {
-            writeValue(expected, value, pruner, buffer, true);
-            buffer.finished();
+            writeValue(expected, value, pruner, w, true);
+            done = true;
         } catch (IOException x) {
             if (x.getCause() instanceof InvocationTargetException) {
                 LOGGER.log(Level.WARNING, "skipping export of " + value, x);
             }
+        } finally {
+            end(writer, w, mark, done);
+        }
+    }
+
+    /**
+     * Ends a section of the output that should be skipped altogether if it fails.
+     *
+     * <p>
+     * If the writer supports {@link DataWriter#mark()}, the section is written directly and rolled back on failure.
+     * Otherwise it's recorded by {@link BufferedDataWriter} and only replayed when successful.
+     *
+     * @param w
+     *      The writer that the section was written to.
+     */
+    private static void end(DataWriter writer, DataWriter w, int mark, boolean done) throws IOException {
+        if (w!=writer) {
+            if (done)
+                ((BufferedDataWriter) w).commit(writer);
+        } else {
+            if (done)
+                writer.commit(mark);
+            else
+                writer.rollback(mark);
         }
-        buffer.commit(writer);
     }
 
     /**
@@ -191,104 +241,114 @@ public abstract class Property implements Comparable<Property> {
             return;
         }
 
-        if(value instanceof CustomExportedBean) {
-            writeValue(expected,((CustomExportedBean)value).toExportedObject(),pruner,writer);
-            return;
-        }
-
         Class c = value.getClass();
 
-        Model model = owner.getOrNull(c, parent.type, name);
-        if (model == null) {
-            if(STRING_TYPES.contains(c)) {
-                writer.value(value.toString());
-                return;
-            }
-            if(PRIMITIVE_TYPES.contains(c)) {
-                writer.valuePrimitive(value);
-                return;
-            }
+        switch (ValueKind.of(c)) {
+        case CUSTOM:
+            writeValue(expected,((CustomExportedBean)value).toExportedObject(),pruner,writer);
+            return;
+        case BEAN:
+            Model model = owner.getOrNull(c, parent.type, name);
+            writer.type(expected, c);
+            writer.startObject();
+            model.writeNestedObjectTo(value, pruner, writer);
+            writer.endObject();
+            return;
+        case STRING:
+            writer.value(value.toString());
+            return;
+        case PRIMITIVE:
+            writer.valuePrimitive(value);
+            return;
+        case ARRAY:
             Class act = c.getComponentType();
-            if (act !=null) { // array
-                Range r = pruner.getRange();
-                writer.startArray();
-                if (value instanceof Object[]) {
-                    // typical case
-                    for (Object item : r.apply((Object[]) value)) {
-                        writeBuffered(act, item, pruner, writer);
-                    }
-                } else {
-                    // more generic case
-                    int len = Math.min(r.max, Array.getLength(value));
-                    for (int i=r.min; i<len; i++) {
-                        writeBuffered(act, Array.get(value, i), pruner, writer);
-                    }
+            Range r = pruner.getRange();
+            writer.startArray();
+            if (value instanceof Object[]) {
+                // typical case
+                for (Object item : prefetch(r.apply((Object[]) value), pruner, writer)) {
+                    writeBuffered(act, item, pruner, writer);
                 }
-                writer.endArray();
-                return;
-            }
-            if(value instanceof Iterable) {
-                writer.startArray();
-                Type expectedItemType = Types.getTypeArgument(expected, 0, null);
-                for (Object item : pruner.getRange().apply((Iterable) value)) {
-                    writeBuffered(expectedItemType, item, pruner, writer);
+            } else {
+                // more generic case
+                int len = Math.min(r.max, Array.getLength(value));
+                for (int i=r.min; i<len; i++) {
+                    writeBuffered(act, Array.get(value, i), pruner, writer);
                 }
-                writer.endArray();
-                return;
             }
-            if(value instanceof Map) {
-                if (verboseMap!=null) {// verbose form
-                    writer.startArray();
-                    for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
-                        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
-                        try {
-                            writeStartObjectNullType(buffer);
-                            buffer.name(verboseMap[0]);
-                            writeValue(null, e.getKey(), pruner, buffer);
-                            buffer.name(verboseMap[1]);
-                            writeValue(null, e.getValue(), pruner, buffer);
-                            buffer.endObject();
-                            buffer.finished();
-                        } catch (IOException x) {
-                            if (x.getCause() instanceof InvocationTargetException) {
-                                LOGGER.log(Level.WARNING, "skipping export of " + e, x);
-                            }
+            writer.endArray();
+            return;
+        case RANGE_AWARE:
+            writer.startArray();
+            Type rangeItemType = expected==null ? null : Types.getTypeArgument(Types.getBaseClass(expected, RangeAware.class), 0, null);
+            for (Object item : prefetch(((RangeAware<?>) value).select(pruner.getRange(), pruner), pruner, writer)) {
+                writeBuffered(rangeItemType, item, pruner, writer);
+            }
+            writer.endArray();
+            return;
+        case ITERABLE:
+            writer.startArray();
+            Type expectedItemType = expected==type ? itemType : Types.getTypeArgument(expected, 0, null);
+            for (Object item : prefetch(pruner.getRange().apply((Iterable<?>) value), pruner, writer)) {
+                writeBuffered(expectedItemType, item, pruner, writer);
+            }
+            writer.endArray();
+            return;
+        case MAP:
+            if (verboseMap!=null) {// verbose form
+                writer.startArray();
+                for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
+                    int mark = writer.mark();
+                    DataWriter w = mark<0 ? new BufferedDataWriter(writer.getExportConfig()) : writer;
+                    boolean done = false;
+                    try {
+                        writeStartObjectNullType(w);
+                        w.name(verboseMap[0]);
+                        writeValue(null, e.getKey(), pruner, w);
+                        w.name(verboseMap[1]);
+                        writeValue(null, e.getValue(), pruner, w);
+                        w.endObject();
+                        done = true;
+                    } catch (IOException x) {
+                        if (x.getCause() instanceof InvocationTargetException) {
+                            LOGGER.log(Level.WARNING, "skipping export of " + e, x);
                         }
-                        buffer.commit(writer);
+                    } finally {
+                        end(writer, w, mark, done);
                     }
-                    writer.endArray();
-                } else {// compact form
-                    writeStartObjectNullType(writer);
-                    for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
-                        BufferedDataWriter buffer = new BufferedDataWriter(writer.getExportConfig());
-                        try {
-                            buffer.name(e.getKey().toString());
-                            writeValue(null, e.getValue(), pruner, buffer);
-                            buffer.finished();
-                        } catch (IOException x) {
-                            if (x.getCause() instanceof InvocationTargetException) {
-                                LOGGER.log(Level.WARNING, "skipping export of " + e, x);
-                            }
+                }
+                writer.endArray();
+            } else {// compact form
+                writeStartObjectNullType(writer);
+                for (Map.Entry e : ((Map<?,?>) value).entrySet()) {
+                    int mark = writer.mark();
+                    DataWriter w = mark<0 ? new BufferedDataWriter(writer.getExportConfig()) : writer;
+                    boolean done = false;
+                    try {
+                        w.name(e.getKey().toString());
+                        writeValue(null, e.getValue(), pruner, w);
+                        done = true;
+                    } catch (IOException x) {
+                        if (x.getCause() instanceof InvocationTargetException) {
+                            LOGGER.log(Level.WARNING, "skipping export of " + e, x);
                         }
-                        buffer.commit(writer);
+                    } finally {
+                        end(writer, w, mark, done);
                     }
-                    writer.endObject();
                 }
-                return;
-            }
-            if(value instanceof Date) {
-                writer.valuePrimitive(((Date) value).getTime());
-                return;
-            }
-            if(value instanceof Calendar) {
-                writer.valuePrimitive(((Calendar) value).getTimeInMillis());
-                return;
-            }
-            if(value instanceof Enum) {
-                writer.value(value.toString());
-                return;
+                writer.endObject();
             }
-
+            return;
+        case DATE:
+            writer.valuePrimitive(((Date) value).getTime());
+            return;
+        case CALENDAR:
+            writer.valuePrimitive(((Calendar) value).getTimeInMillis());
+            return;
+        case ENUM:
+            writer.value(value.toString());
+            return;
+        default:
             if (skipIfFail) {
                 writer.startObject();
                 writer.endObject();
@@ -296,18 +356,94 @@ public abstract class Property implements Comparable<Property> {
             }
 
             throw new NotExportableException(c);
-        } else {
-            writer.type(expected, value.getClass());
-            writer.startObject();
-            model.writeNestedObjectTo(value, pruner, writer);
-            writer.endObject();
         }
     }
 
-    private static class BufferedDataWriter implements DataWriter {
+    /**
+     * Gives {@link ExportConfig#getPrefetcher()} a chance to look at the items of a collection before they are written.
+     *
+     * @return
+     *      The items to write, since they may have to be read in advance.
+     */
+    @SuppressWarnings("unchecked")
+    private Iterable<?> prefetch(Iterable<?> items, TreePruner pruner, DataWriter writer) throws IOException {
+        ExportConfig config = writer.getExportConfig();
+        ExportPrefetcher prefetcher = config.getPrefetcher();
+        if (prefetcher==null)
+            return items;
+
+        List<Object> all = items instanceof List ? (List<Object>) items : Lists.newArrayList(items);
+        Map<Class<?>,List<Object>> byClass = new LinkedHashMap<Class<?>,List<Object>>();
+        for (Object item : all) {
+            if (item!=null && ValueKind.of(item.getClass())==ValueKind.BEAN) {
+                List<Object> l = byClass.get(item.getClass());
+                if (l==null)
+                    byClass.put(item.getClass(), l = new ArrayList<Object>());
+                l.add(item);
+            }
+        }
+
+        for (Map.Entry<Class<?>,List<Object>> e : byClass.entrySet()) {
+            Model model = owner.getOrNull(e.getKey(), parent.type, name);
+            Model.Selection[] plan = pruner instanceof NamedPathPruner
+                    ? ((NamedPathPruner) pruner).select(model)
+                    : model.select(e.getValue().get(0), pruner);
+            List<Property> properties = new ArrayList<Property>(plan.length);
+            for (Model.Selection s : plan)
+                properties.add(s.property);
+            prefetcher.prefetch(model, e.getValue(), properties, config);
+        }
+        return all;
+    }
+
+    /**
+     * How values of a class are written, in the order of precedence.
+     * This only depends on the class, so it's computed once per class instead of once per value.
+     */
+    private enum ValueKind {
+        CUSTOM, BEAN, STRING, PRIMITIVE, ARRAY, RANGE_AWARE, ITERABLE, MAP, DATE, CALENDAR, ENUM, UNKNOWN;
+
+        static ValueKind of(Class<?> c) {
+            return KINDS.get(c);
+        }
+
+        private static final ClassValue<ValueKind> KINDS = new ClassValue<ValueKind>() {
+            @Override
+            protected ValueKind computeValue(Class<?> c) {
+                if (CustomExportedBean.class.isAssignableFrom(c))   return CUSTOM;
+                // same condition as ModelBuilder.getOrNull
+                if (c.getAnnotation(ExportedBean.class)!=null)      return BEAN;
+                if (STRING_TYPES.contains(c))                       return STRING;
+                if (PRIMITIVE_TYPES.contains(c))                    return PRIMITIVE;
+                if (c.isArray())                                    return ARRAY;
+                if (RangeAware.class.isAssignableFrom(c))           return RANGE_AWARE;
+                if (Iterable.class.isAssignableFrom(c))             return ITERABLE;
+                if (Map.class.isAssignableFrom(c))                  return MAP;
+                if (Date.class.isAssignableFrom(c))                 return DATE;
+                if (Calendar.class.isAssignableFrom(c))             return CALENDAR;
+                if (Enum.class.isAssignableFrom(c))                 return ENUM;
+                return UNKNOWN;
+            }
+        };
+    }
+
+    /**
+     * Records the calls, to be replayed to a {@link DataWriter} that doesn't support {@link DataWriter#mark()},
+     * or later from {@link ExportCache}.
+     *
+     * <p>
+     * Supports {@link #mark()} itself, so that what's being recorded for the cache doesn't need
+     * yet another one of these for each value that may fail.
+     */
+    /*package*/ static class BufferedDataWriter implements DataWriter {
         private final ExportConfig exportConfig;
+        /**
+         * Size of {@link #steps} at each outstanding {@link #mark()}.
+         */
+        private int[] marks = new int[4];
+        private int markDepth;
 
-        private BufferedDataWriter(ExportConfig exportConfig) {
+        BufferedDataWriter(ExportConfig exportConfig) {
             this.exportConfig = exportConfig;
         }
 
@@ -326,7 +462,6 @@ public abstract class Property implements Comparable<Property> {
             }
         }
         final List<Step> steps = new ArrayList<Step>();
-        boolean finished = false;
         @Override
         public void name(String name) throws IOException {
             steps.add(new Step(Op.name, name));
@@ -363,13 +498,27 @@ public abstract class Property implements Comparable<Property> {
         public void endObject() throws IOException {
             steps.add(new Step(Op.endObject));
         }
-        private void finished() {
-            finished = true;
+        @Override
+        public int mark() {
+            if (markDepth==marks.length)
+                marks = Arrays.copyOf(marks, markDepth*2);
+            marks[markDepth] = steps.size();
+            return markDepth++;
+        }
+        @Override
+        public void commit(int mark) {
+            pop(mark);
+        }
+        @Override
+        public void rollback(int mark) {
+            steps.subList(pop(mark), steps.size()).clear();
+        }
+        private int pop(int mark) {
+            if (mark!=markDepth-1)
+                throw new IllegalStateException("Expected to end mark "+(markDepth-1)+" but got "+mark);
+            return marks[--markDepth];
         }
         void commit(DataWriter w) throws IOException {
-            if (!finished) {
-                return;
-            }
             for (Step step : steps) {
                 switch (step.op) {
                 case name:
@@ -416,6 +565,16 @@ public abstract class Property implements Comparable<Property> {
      */
     public abstract Object getValue(Object bean) throws IllegalAccessException, InvocationTargetException;
 
+    /**
+     * Adapts a handle that reads a property to {@code (Object)Object}, so that
+     * {@link #getValue(Object)} can use {@link MethodHandle#invokeExact(Object...)}.
+     */
+    static MethodHandle getter(MethodHandle h, boolean isStatic) {
+        if (isStatic)
+            h = MethodHandles.dropArguments(h, 0, Object.class);
+        return h.asType(MethodType.methodType(Object.class, Object.class));
+    }
+
     /*package*/ static final Set<Class> STRING_TYPES = new HashSet<Class>(Arrays.asList(
         String.class,
         URL.class
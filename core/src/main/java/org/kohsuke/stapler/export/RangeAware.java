@@ -0,0 +1,41 @@
+package org.kohsuke.stapler.export;
+
+/**
+ * Collection-like value of an {@link Exported} property that can produce just the portion
+ * that's going to be written.
+ *
+ * <p>
+ * Normally a getter has to build the whole collection, and {@link Range} and {@link TreePruner}
+ * are applied to it afterward. So for example {@code tree=builds[number]{0,10}} against an object
+ * with thousands of builds still loads all of them. By returning this type instead, the getter
+ * can defer the loading until the requested range is known, and page through the data source.
+ *
+ * <pre>
+ * &#64;Exported
+ * public RangeAware&lt;Build&gt; getBuilds() {
+ *     return (range, pruner) -&gt; db.loadBuilds(range.min, range.max);
+ * }
+ * </pre>
+ *
+ * <p>
+ * The value is written as an array, and the declared type argument is used as the expected
+ * type of the items, just like {@link Iterable}. If a value implements both, this takes precedence.
+ *
+ * @param <T>
+ *      Type of the items.
+ * @since TODO
+ */
+public interface RangeAware<T> {
+    /**
+     * Returns the items to write.
+     *
+     * @param range
+     *      Portion of the items to return, in terms of indices in the whole collection.
+     *      {@link Range#ALL} if no range is requested.
+     *      The returned items are written as is; the range is not applied again.
+     * @param pruner
+     *      Pruner that will be applied to each item, which can be used to tell which properties
+     *      of the items are going to be written, for example to decide what to load up front.
+     */
+    Iterable<? extends T> select(Range range, TreePruner pruner);
+}
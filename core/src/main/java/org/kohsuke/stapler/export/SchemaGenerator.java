@@ -116,6 +116,11 @@ public class SchemaGenerator {
                 isCollection = true;
                 itemType = TypeUtil.erasure(
                     TypeUtil.getTypeArgument(TypeUtil.getBaseClass(p.getGenericType(),Collection.class),0));
+            } else
+            if(RangeAware.class.isAssignableFrom(t)) {
+                isCollection = true;
+                itemType = TypeUtil.erasure(
+                    TypeUtil.getTypeArgument(TypeUtil.getBaseClass(p.getGenericType(),RangeAware.class),0));
             } else {
                 isCollection = false;
                 itemType = t;
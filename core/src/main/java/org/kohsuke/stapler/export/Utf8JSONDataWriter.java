@@ -0,0 +1,306 @@
+package org.kohsuke.stapler.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * JSON writer that encodes UTF-8 by itself, straight into a byte buffer.
+ *
+ * <p>
+ * Produces the same output as {@link JSONDataWriter}, minus the char-to-byte encoding step of
+ * {@link java.io.OutputStreamWriter} and the per-property string concatenation. Property names are
+ * encoded once per {@link Property}, see {@link #encodeName(String)}.
+ */
+final class Utf8JSONDataWriter extends ByteDataWriter {
+    private boolean needComma;
+    private int indent;
+
+    Utf8JSONDataWriter(OutputStream out, ExportConfig config) {
+        this(out,config,config.isPrettyPrint(),8192);
+    }
+
+    Utf8JSONDataWriter(OutputStream out, ExportConfig config, boolean prettyPrint, int bufferSize) {
+        super(out, config, bufferSize);
+        indent = prettyPrint ? 0 : -1;
+    }
+
+    public void name(String name) throws IOException {
+        comma();
+        ensure(name.length()*3+2);
+        buf[len++] = '"';
+        encode(name);
+        buf[len++] = '"';
+        colon();
+    }
+
+    /**
+     * Writes the name that {@link Property} encoded by {@link #encodeName(String)} in advance.
+     */
+    @Override
+    public void name(Property property) throws IOException {
+        name(property.jsonName);
+    }
+
+    private void name(byte[] encoded) throws IOException {
+        comma();
+        write(encoded);
+        colon();
+    }
+
+    private void colon() throws IOException {
+        if (indent<0)   write(':');
+        else            write(COLON_PRETTY);
+        needComma = false;
+    }
+
+    private void comma() throws IOException {
+        if(needComma) {
+            write(',');
+            indent();
+        }
+        needComma = true;
+    }
+
+    /**
+     * Prints indentation.
+     */
+    private void indent() throws IOException {
+        if (indent>=0) {
+            int n = indent*2;
+            ensure(n+1);
+            buf[len++] = '\n';
+            Arrays.fill(buf, len, len+n, (byte)' ');
+            len += n;
+        }
+    }
+
+    public void valuePrimitive(Object v) throws IOException {
+        comma();
+        if (v instanceof Integer || v instanceof Long || v instanceof Short) {
+            writeLong(((Number)v).longValue());
+        } else {
+            String s = v.toString();
+            ensure(s.length()*3);
+            encode(s);
+        }
+        done();
+    }
+
+    public void value(String v) throws IOException {
+        comma();
+        write('"');
+        escape(v);
+        write('"');
+        done();
+    }
+
+    public void valueNull() throws IOException {
+        comma();
+        write(NULL);
+        done();
+    }
+
+    private void open(char symbol) throws IOException {
+        comma();
+        write(symbol);
+        needComma = false;
+        nesting++;
+        if (indent>=0)  indent++;
+        indent();
+    }
+
+    private void close(char symbol) throws IOException {
+        if (indent>=0)  indent--;
+        indent();
+        needComma = true;
+        write(symbol);
+        nesting--;
+        done();
+    }
+
+    public void startArray() throws IOException {
+        open('[');
+    }
+
+    public void endArray() throws IOException {
+        close(']');
+    }
+
+    public void startObject() throws IOException {
+        open('{');
+
+        if (classAttr!=null) {
+            name(CLASS_PROPERTY_NAME_ENCODED);
+            value(classAttr);
+            classAttr = null;
+        }
+    }
+
+    public void endObject() throws IOException {
+        close('}');
+    }
+
+    /**
+     * Ends the top-level value with a new line, and starts over so that another top-level value can follow.
+     */
+    void newLine() throws IOException {
+        write('\n');
+        needComma = false;
+        done();
+    }
+
+    @Override
+    State createState() {
+        return new JsonState();
+    }
+
+    @Override
+    void save(State s) {
+        super.save(s);
+        ((JsonState)s).needComma = needComma;
+        ((JsonState)s).indent = indent;
+    }
+
+    @Override
+    void restore(State s) {
+        super.restore(s);
+        needComma = ((JsonState)s).needComma;
+        indent = ((JsonState)s).indent;
+    }
+
+    private static final class JsonState extends State {
+        boolean needComma;
+        int indent;
+    }
+
+    private void write(char ascii) throws IOException {
+        write((byte)ascii);
+    }
+
+    private void writeLong(long v) throws IOException {
+        if (v==Long.MIN_VALUE) {
+            write(LONG_MIN_VALUE);
+            return;
+        }
+        ensure(20);
+        if (v<0) {
+            buf[len++] = '-';
+            v = -v;
+        }
+        int start = len;
+        do {
+            buf[len++] = (byte)('0'+(v%10));
+            v /= 10;
+        } while (v!=0);
+        // digits came out in reverse
+        for (int i=start, j=len-1; i<j; i++, j--) {
+            byte t = buf[i];
+            buf[i] = buf[j];
+            buf[j] = t;
+        }
+    }
+
+    /**
+     * Writes the string as a JSON string literal minus the quotes.
+     */
+    private void escape(String v) throws IOException {
+        for (int i=0; i<v.length(); i++) {
+            char c = v.charAt(i);
+            if (len+6>buf.length)
+                ensure(6);
+            if (c<ESCAPES.length) {
+                byte[] e = ESCAPES[c];
+                if (e==null) {
+                    buf[len++] = (byte)c;
+                } else {
+                    System.arraycopy(e,0,buf,len,e.length);
+                    len += e.length;
+                }
+            } else if (Character.isSurrogate(c)) {
+                // same as JSONDataWriter, which escapes surrogates as opposed to encoding the pair
+                writeUnicodeEscape(c);
+            } else {
+                encodeChar(c);
+            }
+        }
+    }
+
+    private void writeUnicodeEscape(char c) {
+        buf[len++] = '\\';
+        buf[len++] = 'u';
+        buf[len++] = HEX[(c>>12)&0xF];
+        buf[len++] = HEX[(c>>8)&0xF];
+        buf[len++] = HEX[(c>>4)&0xF];
+        buf[len++] = HEX[c&0xF];
+    }
+
+    /**
+     * Encodes a string with no escaping. The buffer must have room for 3 bytes per char.
+     */
+    private void encode(String s) {
+        for (int i=0; i<s.length(); i++) {
+            char c = s.charAt(i);
+            if (!Character.isSurrogate(c)) {
+                encodeChar(c);
+            } else if (Character.isHighSurrogate(c) && i+1<s.length() && Character.isLowSurrogate(s.charAt(i+1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf[len++] = (byte)(0xF0|(cp>>18));
+                buf[len++] = (byte)(0x80|((cp>>12)&0x3F));
+                buf[len++] = (byte)(0x80|((cp>>6)&0x3F));
+                buf[len++] = (byte)(0x80|(cp&0x3F));
+            } else {
+                buf[len++] = '?';   // malformed, same as what OutputStreamWriter does
+            }
+        }
+    }
+
+    /**
+     * Encodes a non-surrogate char in UTF-8.
+     */
+    private void encodeChar(char c) {
+        if (c<0x80) {
+            buf[len++] = (byte)c;
+        } else if (c<0x800) {
+            buf[len++] = (byte)(0xC0|(c>>6));
+            buf[len++] = (byte)(0x80|(c&0x3F));
+        } else {
+            buf[len++] = (byte)(0xE0|(c>>12));
+            buf[len++] = (byte)(0x80|((c>>6)&0x3F));
+            buf[len++] = (byte)(0x80|(c&0x3F));
+        }
+    }
+
+    /**
+     * Encodes a property name, quotes included, for {@link #name(byte[])}.
+     * Like {@link JSONDataWriter#name(String)}, the name is not escaped.
+     */
+    static byte[] encodeName(String name) {
+        Utf8JSONDataWriter w = new Utf8JSONDataWriter(null, new ExportConfig(), false, name.length()*3+2);
+        w.buf[w.len++] = '"';
+        w.encode(name);
+        w.buf[w.len++] = '"';
+        return Arrays.copyOf(w.buf, w.len);
+    }
+
+    /**
+     * Escape sequences for chars below U+00A0, or null if the char is written as is.
+     * Like {@link JSONDataWriter#value(String)}, all ISO control characters are escaped.
+     */
+    private static final byte[][] ESCAPES = new byte[0xA0][];
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+    static {
+        for (char c=0; c<ESCAPES.length; c++) {
+            if (Character.isISOControl(c))
+                ESCAPES[c] = String.format("\\u%04x", (int) c).getBytes();
+        }
+        ESCAPES['"'] = "\\\"".getBytes();
+        ESCAPES['\\'] = "\\\\".getBytes();
+    }
+
+    private static final byte[] COLON_PRETTY = " : ".getBytes();
+    private static final byte[] NULL = "null".getBytes();
+    private static final byte[] LONG_MIN_VALUE = Long.toString(Long.MIN_VALUE).getBytes();
+    private static final byte[] CLASS_PROPERTY_NAME_ENCODED = encodeName(CLASS_PROPERTY_NAME);
+}
@@ -23,12 +23,15 @@
 
 package org.kohsuke.stapler.export;
 
-import org.kohsuke.stapler.Stapler;
 import org.kohsuke.stapler.StaplerResponse;
 
 import javax.annotation.Nonnull;
 import java.lang.reflect.Type;
-import java.util.Stack;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.io.Writer;
 import java.io.IOException;
 import java.beans.Introspector;
@@ -41,27 +44,52 @@ import java.beans.Introspector;
 final class XMLDataWriter implements DataWriter {
 
     private String name;
-    private final Stack<String> objectNames = new Stack<String>();
+    /**
+     * Names of the objects that are currently open, from the outermost one.
+     */
+    private String[] objectNames = new String[16];
+    private int objects;
     /**
      * Stack that keeps track of whether we are inside an array.
      * The top element represents the current state.
      */
-    private final Stack<Boolean> isArray = new Stack<Boolean>();
+    private boolean[] isArray = new boolean[16];
+    private int scopes;
     private final Writer out;
-    private ExportConfig config;
+    private final ExportConfig config;
     private String classAttr;
-    private final ExportConfig exportConfig;
+
+    private final boolean prettyPrint;
+    /**
+     * True if the innermost open object has no child elements yet. Only used for pretty printing.
+     */
+    private boolean empty;
+
+    /**
+     * Element names computed from the names given to {@link #name(String)}, and their singular forms.
+     * These are mostly property names, which repeat over and over.
+     */
+    private final Map<String,String> elementNames = new HashMap<String,String>();
+    private final Map<String,String> singularNames = new HashMap<String,String>();
+
+    /**
+     * {@link #out}, which holds back the output while there's a {@link #mark()}.
+     */
+    private final MarkableWriter markable;
+    /**
+     * State of this writer at each outstanding {@link #mark()}, reused across marks.
+     */
+    private final List<State> marks = new ArrayList<State>();
 
     XMLDataWriter(Object bean, Writer out, ExportConfig config) throws IOException {
         Class c=bean.getClass();
         while (c.isAnonymousClass())
             c = c.getSuperclass();
         name = Introspector.decapitalize(c.getSimpleName());
-        this.out = out;
+        this.out = this.markable = new MarkableWriter(out);
         this.config = config;
-        this.isArray.push(false);
-        this.exportConfig = config;
-        // TODO: support pretty printing
+        this.prettyPrint = config.isPrettyPrint();
+        this.isArray[scopes++] = false;
     }
 
     XMLDataWriter(Object bean, StaplerResponse rsp, ExportConfig config) throws IOException {
@@ -70,7 +98,7 @@ final class XMLDataWriter implements DataWriter {
 
     @Override
     public @Nonnull ExportConfig getExportConfig() {
-        return exportConfig;
+        return config;
     }
 
     public void name(String name) {
@@ -83,9 +111,14 @@ final class XMLDataWriter implements DataWriter {
 
     public void value(String v) throws IOException {
         String n = adjustName();
-        out.write('<'+n+'>');
-        out.write(Stapler.escape(v));
-        out.write("</"+n+'>');
+        indent();
+        out.write('<');
+        out.write(n);
+        out.write('>');
+        escape(v);
+        out.write("</");
+        out.write(n);
+        out.write('>');
     }
 
     public void valueNull() {
@@ -95,11 +128,11 @@ final class XMLDataWriter implements DataWriter {
     public void startArray() {
         // use repeated element to display array
         // this means nested arrays are not supported
-        isArray.push(true);
+        pushScope(true);
     }
 
     public void endArray() {
-        isArray.pop();
+        scopes--;
     }
 
     @Override
@@ -108,21 +141,119 @@ final class XMLDataWriter implements DataWriter {
     }
 
     public void startObject() throws IOException {
-        objectNames.push(name);
-        out.write('<' + adjustName());
-        isArray.push(false);
+        if (objects==objectNames.length)
+            objectNames = Arrays.copyOf(objectNames, objects*2);
+        String n = adjustName();
+        indent();
+        objectNames[objects++] = name;
+        out.write('<');
+        out.write(n);
+        pushScope(false);
+        empty = true;
 
         if (classAttr!=null) {
-            out.write(CLASS_ATTRIBUTE_PREFIX +classAttr+"'");
+            out.write(CLASS_ATTRIBUTE_PREFIX);
+            out.write(classAttr);
+            out.write('\'');
             classAttr = null;
         }
         out.write('>');
     }
 
     public void endObject() throws IOException {
-        isArray.pop();
-        name = objectNames.pop();
-        out.write("</"+adjustName()+'>');
+        scopes--;
+        name = objectNames[--objects];
+        objectNames[objects] = null;
+        String n = adjustName();
+        if (prettyPrint && !empty)
+            newLine();
+        empty = false;
+        out.write("</");
+        out.write(n);
+        out.write('>');
+    }
+
+    private void pushScope(boolean array) {
+        if (scopes==isArray.length)
+            isArray = Arrays.copyOf(isArray, scopes*2);
+        isArray[scopes++] = array;
+    }
+
+    /**
+     * If pretty printing, starts a new line for an element inside an object.
+     */
+    private void indent() throws IOException {
+        if (prettyPrint && objects>0) {
+            newLine();
+            empty = false;
+        }
+    }
+
+    private void newLine() throws IOException {
+        out.write('\n');
+        for (int n=objects*2; n>0; n-=SPACES.length)
+            out.write(SPACES, 0, Math.min(n, SPACES.length));
+    }
+
+    /**
+     * Writes the text with '&lt;', '&gt;', and '&amp;' escaped, like {@link org.kohsuke.stapler.Stapler#escape(String)}.
+     */
+    private void escape(String v) throws IOException {
+        int start = 0;
+        int len = v.length();
+        for (int i=0; i<len; i++) {
+            char ch = v.charAt(i);
+            char[] e;
+            if (ch<ESCAPES.length && (e=ESCAPES[ch])!=null) {
+                if (i>start)
+                    out.write(v, start, i-start);
+                out.write(e);
+                start = i+1;
+            }
+        }
+        if (start<len)
+            out.write(v, start, len-start);
+    }
+
+    @Override
+    public int mark() throws IOException {
+        int mark = markable.mark();
+        if (mark==marks.size())
+            marks.add(new State());
+        State s = marks.get(mark);
+        s.name = name;
+        s.objects = objects;
+        s.scopes = scopes;
+        s.empty = empty;
+        s.classAttr = classAttr;
+        return mark;
+    }
+
+    @Override
+    public void commit(int mark) throws IOException {
+        markable.commit(mark);
+        State s = marks.get(mark);
+        s.name = s.classAttr = null;
+    }
+
+    @Override
+    public void rollback(int mark) throws IOException {
+        markable.rollback(mark);
+        State s = marks.get(mark);
+        name = s.name;
+        Arrays.fill(objectNames, s.objects, objects, null);
+        objects = s.objects;
+        scopes = s.scopes;
+        empty = s.empty;
+        classAttr = s.classAttr;
+        s.name = s.classAttr = null;
+    }
+
+    private static final class State {
+        String name;
+        int objects, scopes;
+        boolean empty;
+        String classAttr;
     }
 
     /**
@@ -130,11 +261,25 @@ final class XMLDataWriter implements DataWriter {
      * by considering {@link #isArray}
      */
     private String adjustName() {
-        String escaped = makeXmlName(name);
-        if(isArray.peek()) return toSingular(escaped);
+        String escaped = elementNames.get(name);
+        if (escaped==null)
+            escaped = cache(elementNames, name, makeXmlName(name));
+        if(isArray[scopes-1]) {
+            String singular = singularNames.get(escaped);
+            if (singular==null)
+                singular = cache(singularNames, escaped, toSingular(escaped));
+            return singular;
+        }
         return escaped;
     }
 
+    private static String cache(Map<String,String> cache, String key, String value) {
+        if (cache.size()>=MAX_CACHED_NAMES)
+            cache.clear();  // names of map entries could be anything, so don't let it grow without bound
+        cache.put(key, value);
+        return value;
+    }
+
     /*package*/ static String toSingular(String name) {
         return name.replaceFirst("ies$", "y").replaceFirst("s$", "");
     }
@@ -161,4 +306,18 @@ final class XMLDataWriter implements DataWriter {
     }
 
     private static final String CLASS_ATTRIBUTE_PREFIX = " "+ CLASS_PROPERTY_NAME +"='";
-}
\ No newline at end of file
+
+    private static final int MAX_CACHED_NAMES = 1024;
+
+    private static final char[] SPACES = "                ".toCharArray();
+
+    /**
+     * Replacements of the characters that need escaping, indexed by the character.
+     */
+    private static final char[][] ESCAPES = new char['>'+1][];
+    static {
+        ESCAPES['<'] = "&lt;".toCharArray();
+        ESCAPES['>'] = "&gt;".toCharArray();
+        ESCAPES['&'] = "&amp;".toCharArray();
+    }
+}
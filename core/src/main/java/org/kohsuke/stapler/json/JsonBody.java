@@ -1,7 +1,6 @@
 package org.kohsuke.stapler.json;
 
 import net.sf.json.JSONObject;
-import org.apache.commons.io.IOUtils;
 import org.kohsuke.stapler.AnnotationHandler;
 import org.kohsuke.stapler.InjectedParameter;
 import org.kohsuke.stapler.StaplerRequest;
@@ -21,7 +20,8 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
  *
  * <p>
  * On a web-bound <tt>doXyz</tt> method, use this method on a parameter to get the content of the request
- * data-bound to a bean through {@link JSONObject#fromObject(Object)} and inject it as a parameter.
+ * data-bound to a bean through {@link JSONObject#toBean(JSONObject, Class)} and inject it as a parameter.
+ * The body is limited to {@link JsonBodyReader#MAX_LENGTH} characters.
  * For example,
  *
  * <pre>
@@ -69,7 +69,7 @@ public @interface JsonBody {
 
             try {
                 // TODO: exception thrown here results in error page rendered in HTML.
-                JSONObject o = JSONObject.fromObject(IOUtils.toString(request.getReader()));
+                JSONObject o = JSONObject.fromObject(JsonBodyReader.read(request.getReader()));
                 return JSONObject.toBean(o,type);
             } catch (IOException e) {
                 throw new ServletException("Failed to read JSON",e);
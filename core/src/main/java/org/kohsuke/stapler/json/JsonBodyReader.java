@@ -0,0 +1,54 @@
+package org.kohsuke.stapler.json;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.kohsuke.stapler.HttpResponses;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static javax.servlet.http.HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE;
+
+/**
+ * Reads the JSON text of a request body for json-lib to parse, up to a size limit,
+ * so that a client can't make the server hold an arbitrarily large body in memory.
+ *
+ * @see JsonBody
+ * @since TODO
+ */
+public final class JsonBodyReader {
+    private JsonBodyReader() {}
+
+    /**
+     * Reads everything from the reader, up to {@link #MAX_LENGTH} characters.
+     */
+    public static String read(Reader in) throws IOException {
+        return read(in,MAX_LENGTH);
+    }
+
+    /**
+     * Reads everything from the reader.
+     *
+     * @param maxLength
+     *      Maximum number of characters to read, or 0 or less to read without a limit.
+     *      Going over the limit results in "413 Request Entity Too Large."
+     */
+    public static String read(Reader in, long maxLength) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] buf = new char[4096];
+        int n;
+        while ((n=in.read(buf))>=0) {
+            if (maxLength>0 && sb.length()+n>maxLength)
+                throw HttpResponses.errorWithoutStack(SC_REQUEST_ENTITY_TOO_LARGE,
+                        "JSON text is longer than "+maxLength+" characters");
+            sb.append(buf,0,n);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Default maximum number of characters of JSON text to read from a request body.
+     * 0 or less removes the limit.
+     */
+    @SuppressFBWarnings(value = "MS_SHOULD_BE_FINAL", justification = "Tunable by the application.")
+    public static long MAX_LENGTH = Long.getLong("stapler.json.maxLength", 10*1024*1024);
+}
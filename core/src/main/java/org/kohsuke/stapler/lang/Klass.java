@@ -136,8 +136,18 @@ public final class Klass<C> {
 
     /**
      * Creates {@link Klass} from a Java {@link Class}.
+     *
+     * <p>
+     * The same instance is returned for the same {@link Class}, so that this can be used freely on hot paths.
      */
     public static Klass<Class> java(Class c) {
-        return c == null ? null : new Klass<Class>(c, KlassNavigator.JAVA);
+        return c == null ? null : JAVA.get(c);
     }
+
+    private static final ClassValue<Klass<Class>> JAVA = new ClassValue<Klass<Class>>() {
+        @Override
+        protected Klass<Class> computeValue(Class<?> c) {
+            return new Klass<Class>(c, KlassNavigator.JAVA);
+        }
+    };
 }
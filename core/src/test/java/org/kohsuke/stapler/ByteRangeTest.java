@@ -0,0 +1,63 @@
+package org.kohsuke.stapler;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ByteRangeTest {
+    @Test
+    public void single() {
+        assertEquals("[0-500]", parse("bytes=0-499"));
+        assertEquals("[500-1000]", parse("bytes=500-"));
+        assertEquals("[500-1000]", parse("bytes=500-5000"));
+        assertEquals("[999-1000]", parse("bytes=999-999"));
+        assertEquals("[0-1000]", parse("bytes=0-99999999999999999999999"));
+        assertEquals("[0-10]", parse("Bytes=0-9"));
+    }
+
+    @Test
+    public void suffix() {
+        assertEquals("[900-1000]", parse("bytes=-100"));
+        assertEquals("[0-1000]", parse("bytes=-5000"));
+    }
+
+    @Test
+    public void multiple() {
+        assertEquals("[0-1, 999-1000]", parse("bytes=0-0,-1"));
+        // sorted and merged
+        assertEquals("[0-20, 50-60]", parse("bytes=50-59, 10-19,0-9 ,5-6,,"));
+    }
+
+    @Test
+    public void unsatisfiable() {
+        assertTrue(ByteRange.parse("bytes=1000-", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-0", 1000).isEmpty());
+        assertTrue(ByteRange.parse("bytes=-1", 0).isEmpty());
+        assertEquals("[0-1]", parse("bytes=2000-,0-0"));
+    }
+
+    @Test
+    public void ignored() {
+        assertNull(ByteRange.parse("items=0-1", 1000));
+        assertNull(ByteRange.parse("bytes=", 1000));
+        assertNull(ByteRange.parse("bytes=5-4", 1000));
+        assertNull(ByteRange.parse("bytes=-", 1000));
+        assertNull(ByteRange.parse("bytes=1", 1000));
+        assertNull(ByteRange.parse("bytes=+1-2", 1000));
+        assertNull(ByteRange.parse("bytes=0-1,x", 1000));
+
+        StringBuilder b = new StringBuilder("bytes=0-0");
+        for (int i=1; i<=ByteRange.MAX_RANGES; i++)
+            b.append(',').append(i*2).append('-').append(i*2);
+        assertNull(ByteRange.parse(b.toString(), 1000));
+    }
+
+    private static String parse(String header) {
+        List<ByteRange> ranges = ByteRange.parse(header, 1000);
+        return ranges==null ? null : ranges.toString();
+    }
+}
@@ -5,6 +5,9 @@ import net.sf.json.JSONArray;
 import net.sf.json.JSONObject;
 
 import javax.annotation.PostConstruct;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Method;
 import java.lang.reflect.Type;
 import java.net.Proxy;
 import java.util.ArrayList;
@@ -82,6 +85,87 @@ public class DataBindingTest extends TestCase {
         assertEquals(42, new Function.InstanceFunction(getClass().getMethod("doStaticMethod")).bindAndInvoke(this, req, null));
     }
 
+    /**
+     * The binding plan of a {@link Function} is computed once, but values must still come from each request.
+     */
+    public void testRepeatedInvocation() throws Exception {
+        Function f = new Function.InstanceFunction(getClass().getMethod("doFromStaplerMethod",StaplerRequest.class,int.class,Binder.class));
+        for (int i=0; i<3; i++) {
+            MockRequest mr = formRequest();
+            mr.getParameterMap().put("a","123");
+            mr.getParameterMap().put("b","string");
+            f.bindAndInvoke(this, new RequestImpl(new Stapler(), mr, Collections.<AncestorImpl>emptyList(), null), null);
+        }
+
+        f = new Function.InstanceFunction(getClass().getMethod("doEcho",String.class,int.class));
+        for (int i=0; i<3; i++) {
+            MockRequest mr = formRequest();
+            mr.getParameterMap().put("x",String.valueOf(i));
+            // the first argument is given by the caller, the rest is injected
+            assertEquals("head"+i, f.bindAndInvoke(this, new RequestImpl(new Stapler(), mr, Collections.<AncestorImpl>emptyList(), null), null, "head"));
+        }
+    }
+
+    public String doEcho(String head, @QueryParameter("x") int x) {
+        return head+x;
+    }
+
+    /**
+     * The trailing array of a variable arity method is passed as is, same as {@link java.lang.reflect.Method#invoke}.
+     */
+    public void testVarargs() throws Exception {
+        Function f = new Function.InstanceFunction(getClass().getMethod("doJoin",String.class,String[].class));
+        assertEquals("a[b, c]", f.invoke(null, null, this, "a", new String[] {"b","c"}));
+        assertEquals("a[]", f.invoke(null, null, this, "a", new String[0]));
+        assertEquals("anull", f.invoke(null, null, this, "a", null));
+    }
+
+    public String doJoin(String head, String... rest) {
+        return head+(rest==null ? null : Arrays.asList(rest));
+    }
+
+    /**
+     * Compares calling a getter through {@link Function#invoke} and through {@link MethodHandle#invokeWithArguments}.
+     * This is a benchmark rather than a test, so it's skipped unless the number of calls is given,
+     * like {@code -DDataBindingTest.benchmarkCalls=100000000}.
+     */
+    public void testInvokeThroughput() throws Throwable {
+        Long calls = Long.getLong("DataBindingTest.benchmarkCalls");
+        if (calls==null)
+            return;
+        Method m = getClass().getMethod("getNumber");
+        Function f = new Function.InstanceFunction(m);
+        MethodHandle h = MethodHandles.lookup().unreflect(m);
+
+        for (int i=0; i<5; i++) {
+            long sum = 0;
+            long t0 = System.nanoTime();
+            for (long j=0; j<calls; j++)
+                sum += (Integer) f.invoke(null, null, this);
+            long t1 = System.nanoTime();
+            for (long j=0; j<calls; j++)
+                sum += (Integer) h.invokeWithArguments(this);
+            long t2 = System.nanoTime();
+            assertEquals(14*calls, sum);
+
+            System.out.printf("%.1fns/call through Function, %.1fns/call with invokeWithArguments%n",
+                    (t1-t0)/(double)calls, (t2-t1)/(double)calls);
+        }
+    }
+
+    public int getNumber() {
+        return 7;
+    }
+
+    private static MockRequest formRequest() {
+        return new MockRequest() {
+            @Override
+            public String getContentType() {
+                return "text/html";
+            }
+        };
+    }
+
     public void doFromStaplerMethod(StaplerRequest req, @QueryParameter int a, Binder b) {
         assertEquals(123,a);
         assertSame(req,b.req);
@@ -328,6 +412,57 @@ public class DataBindingTest extends TestCase {
         assertEquals(10,r.post);
     }
 
+    /**
+     * Binding metadata is computed once per class, including the failure to find a constructor.
+     */
+    public void testDescriptorIsCached() {
+        assertSame(DataBoundDescriptor.get(SetterBinding.class), DataBoundDescriptor.get(SetterBinding.class));
+
+        DataBoundDescriptor d = DataBoundDescriptor.get(Point3.class);
+        assertSame(d, DataBoundDescriptor.get(Point3.class));
+        for (int i=0; i<2; i++) {
+            try {
+                d.getConstructorParamNames();
+                fail();
+            } catch (NoStaplerConstructorException e) {
+                // expected
+            }
+        }
+
+        for (int i=0; i<2; i++)
+            testSetterInvocation();
+    }
+
+    public static class Fragile {
+        int x;
+
+        @DataBoundConstructor
+        public Fragile(int x) {
+            if (x<0)    throw new IllegalStateException("negative");
+            this.x = x;
+        }
+
+        @DataBoundSetter
+        public void setY(int y) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Exceptions from the constructor and setters are reported the same way no matter how they are invoked.
+     */
+    public void testExceptionsFromBoundMembers() {
+        Fragile r = bind("{x:1,y:2}",Fragile.class);
+        assertEquals(1,r.x);    // failing setter is only logged
+
+        try {
+            bind("{x:-1}",Fragile.class);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("negative",e.getMessage());
+        }
+    }
+
     public void testInterceptor1() {
         String r = bind("{x:1}", String.class, new BindInterceptor() {
             @Override
@@ -3,6 +3,12 @@ package org.kohsuke.stapler;
 import junit.framework.TestCase;
 import org.junit.Assert;
 import org.kohsuke.stapler.lang.Klass;
+import org.mockito.Mockito;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class MetaClassTest extends TestCase {
     public void testGetObjectProhibited() throws Exception {
@@ -14,4 +20,71 @@ public class MetaClassTest extends TestCase {
         // in fact, there should be no name based dispatchers at all
         Assert.assertFalse(metaClass.dispatchers.stream().anyMatch(d -> d instanceof NameBasedDispatcher));
     }
+
+    /**
+     * {@link DispatcherIndex} should try the same dispatchers in the same order as a linear scan would.
+     */
+    public void testDispatcherIndexKeepsPrecedence() throws Exception {
+        List<String> log = new ArrayList<>();
+        MetaClass metaClass = new MetaClass(new WebApp(new MockServletContext()), Klass.java(Object.class));
+        metaClass.dispatchers.clear();
+        metaClass.dispatchers.addAll(Arrays.asList(
+                any(log, 0),
+                named(log, 1, "foo"),
+                named(log, 2, "bar"),
+                any(log, 3),
+                named(log, 4, "foo"),
+                any(log, 5)));
+
+        assertNull(metaClass.getDispatcherIndex().dispatch(request("foo/x"), null, this));
+        assertEquals(Arrays.asList("0", "1", "3", "4", "5"), log);
+
+        log.clear();
+        assertNull(metaClass.getDispatcherIndex().dispatch(request("zot"), null, this));
+        assertEquals(Arrays.asList("0", "3", "5"), log);
+
+        log.clear();
+        assertNull(metaClass.getDispatcherIndex().dispatch(request(""), null, this));
+        assertEquals(Arrays.asList("0", "3", "5"), log);
+
+        // modifications to the list are picked up
+        log.clear();
+        metaClass.dispatchers.set(3, named(log, 3, "bar"));
+        assertNull(metaClass.getDispatcherIndex().dispatch(request("bar"), null, this));
+        assertEquals(Arrays.asList("0", "2", "3", "5"), log);
+    }
+
+    private RequestImpl request(String url) {
+        return new RequestImpl(new Stapler(), Mockito.mock(HttpServletRequest.class), new ArrayList<AncestorImpl>(), new TokenList(url));
+    }
+
+    /**
+     * Dispatcher that looks at every request, and records that it did.
+     */
+    private static Dispatcher any(final List<String> log, final int index) {
+        return new Dispatcher() {
+            public boolean dispatch(RequestImpl req, ResponseImpl rsp, Object node) {
+                log.add(String.valueOf(index));
+                return false;
+            }
+            public String toString() {
+                return "#"+index;
+            }
+        };
+    }
+
+    /**
+     * Dispatcher that only looks at the given token, and records that it did.
+     */
+    private static Dispatcher named(final List<String> log, final int index, String name) {
+        return new NameBasedDispatcher(name) {
+            protected boolean doDispatch(RequestImpl req, ResponseImpl rsp, Object node) {
+                log.add(String.valueOf(index));
+                return false;
+            }
+            public String toString() {
+                return "#"+index+" for url=/"+name+"/...";
+            }
+        };
+    }
 }
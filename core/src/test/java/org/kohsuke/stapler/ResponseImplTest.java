@@ -1,19 +1,71 @@
 package org.kohsuke.stapler;
 
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
+import org.kohsuke.stapler.export.ClassAttributeBehaviour;
+import org.kohsuke.stapler.export.ExportBudget;
+import org.kohsuke.stapler.export.ExportConfig;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+import org.kohsuke.stapler.export.Flavor;
+import org.kohsuke.stapler.export.NotExportableException;
 import org.kohsuke.stapler.test.AbstractStaplerTest;
+import org.mockito.ArgumentCaptor;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
 
 import static javax.servlet.http.HttpServletResponse.*;
+import static org.mockito.Matchers.*;
 import static org.mockito.Mockito.*;
 
 /**
  * @author Kohsuke Kawaguchi
  */
 public class ResponseImplTest {
+    /**
+     * {@link ServletOutputStream} that passes everything written to it on to the given stream.
+     */
+    static ServletOutputStream capture(final OutputStream out) {
+        return new ServletOutputStream() {
+            public void write(int b) throws IOException {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                // ignores
+            }
+        };
+    }
+
     public static class RedirectTest extends AbstractStaplerTest {
         @Override
         protected void setUp() throws Exception {
@@ -57,4 +109,481 @@ public class ResponseImplTest {
             verify(rawResponse).setHeader("Location", "https://jenkins-ci.org/");
         }
     }
+
+    public static class ETagTest extends AbstractStaplerTest {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+        /**
+         * Saved here rather than in {@link #setUp()}, which some tests call again.
+         */
+        private final int bufferSize = ResponseImpl.EXPORT_ETAG_BUFFER_SIZE;
+
+        @Override
+        protected void setUp() throws Exception {
+            super.setUp();
+            body.reset();
+            ResponseImpl.EXPORT_ETAG_BUFFER_SIZE = 1024;
+            when(rawRequest.getMethod()).thenReturn("GET");
+            when(rawResponse.getOutputStream()).thenReturn(capture(body));
+        }
+
+        @Override
+        protected void tearDown() throws Exception {
+            ResponseImpl.EXPORT_ETAG_BUFFER_SIZE = bufferSize;
+            super.tearDown();
+        }
+
+        public void testNotModified() throws Exception {
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            assertEquals("{\"_class\":\"org.kohsuke.stapler.ResponseImplTest$Bean\",\"value\":\"x\"}", body.toString("UTF-8"));
+            verify(rawResponse).setHeader(eq("ETag"), startsWith("\""));
+            verify(rawResponse).addHeader("Vary", "Accept-Encoding");
+            String etag = captureETag();
+
+            // same data, so no body this time
+            setUp();
+            when(rawRequest.getHeader("If-None-Match")).thenReturn("\"foo\", " + etag);
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setStatus(SC_NOT_MODIFIED);
+            verify(rawResponse).addHeader("Vary", "Accept-Encoding");
+            assertEquals(0, body.size());
+
+            // different data
+            setUp();
+            when(rawRequest.getHeader("If-None-Match")).thenReturn(etag);
+            response.serveExposedBean(request, new Bean("y"), new ExportConfig().withFlavor(Flavor.XML));
+            verify(rawResponse, never()).setStatus(SC_NOT_MODIFIED);
+            assertEquals("<bean _class='org.kohsuke.stapler.ResponseImplTest$Bean'><value>y</value></bean>", body.toString("UTF-8"));
+            assertFalse(etag.equals(captureETag()));
+        }
+
+        public void testTooBigForETag() throws Exception {
+            ResponseImpl.EXPORT_ETAG_BUFFER_SIZE = 10;
+            response.serveExposedBean(request, new Bean("0123456789"), new ExportConfig().withFlavor(Flavor.JSON));
+            assertTrue(body.toString("UTF-8").contains("0123456789"));
+            verify(rawResponse, never()).setHeader(eq("ETag"), anyString());
+            verify(rawResponse, never()).addHeader("Vary", "Accept-Encoding");
+        }
+
+        public void testMatches() {
+            assertTrue(ResponseImpl.matches("\"a\"", "\"a\""));
+            assertTrue(ResponseImpl.matches("W/\"a\"", "\"a\""));
+            assertTrue(ResponseImpl.matches("\"b\" ,\"a\"", "\"a\""));
+            assertTrue(ResponseImpl.matches("*", "\"a\""));
+            assertFalse(ResponseImpl.matches(null, "\"a\""));
+            assertFalse(ResponseImpl.matches("\"b\"", "\"a\""));
+        }
+
+        public void testCbor() throws Exception {
+            when(rawRequest.getHeader("Accept")).thenReturn("application/cbor");
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setContentType(Flavor.CBOR.contentType);
+            verify(rawResponse).addHeader("Vary", "Accept");
+            assertEquals((byte)0xBF, body.toByteArray()[0]);
+        }
+
+        public void testCborNotPreferred() throws Exception {
+            when(rawRequest.getHeader("Accept")).thenReturn("application/cbor;q=0, application/json");
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setContentType(Flavor.JSON.contentType);
+
+            setUp();
+            when(rawRequest.getHeader("Accept")).thenReturn("*/*");
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setContentType(Flavor.JSON.contentType);
+
+            setUp();
+            when(rawRequest.getHeader("Accept")).thenReturn("application/json;q=0.5, application/cbor");
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setContentType(Flavor.CBOR.contentType);
+        }
+
+        /**
+         * CBOR can't go through the Writer, so JSON is sent if that was already obtained.
+         */
+        public void testCborAfterWriter() throws Exception {
+            StringWriter w = new StringWriter();
+            when(rawResponse.getWriter()).thenReturn(new PrintWriter(w));
+            when(rawRequest.getHeader("Accept")).thenReturn("application/cbor");
+            response.getWriter();
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.JSON));
+            verify(rawResponse).setContentType(Flavor.JSON.contentType);
+            verify(rawResponse, never()).addHeader("Vary", "Accept");
+            assertEquals("{\"_class\":\"org.kohsuke.stapler.ResponseImplTest$Bean\",\"value\":\"x\"}", w.toString());
+        }
+
+        /**
+         * Same when {@link Flavor#CBOR} is asked for explicitly.
+         */
+        public void testExplicitCborAfterWriter() throws Exception {
+            StringWriter w = new StringWriter();
+            when(rawResponse.getWriter()).thenReturn(new PrintWriter(w));
+            response.getWriter();
+            response.serveExposedBean(request, new Bean("x"), new ExportConfig().withFlavor(Flavor.CBOR));
+            verify(rawResponse).setContentType(Flavor.JSON.contentType);
+            assertEquals("{\"_class\":\"org.kohsuke.stapler.ResponseImplTest$Bean\",\"value\":\"x\"}", w.toString());
+        }
+
+        private String captureETag() {
+            ArgumentCaptor<String> c = ArgumentCaptor.forClass(String.class);
+            verify(rawResponse).setHeader(eq("ETag"), c.capture());
+            return c.getValue();
+        }
+    }
+
+    public static class ExportBudgetTest extends AbstractStaplerTest {
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        @Override
+        protected void setUp() throws Exception {
+            super.setUp();
+            when(rawResponse.getOutputStream()).thenReturn(capture(body));
+        }
+
+        public void testBadRequest() throws Exception {
+            ExportBudget budget = new ExportBudget().withMaxObjects(1);
+            response.serveExposedBean(request, new Bean[] {new Bean("x"), new Bean("y")}, new ExportConfig().withBudget(budget));
+            verify(rawResponse).reset();
+            verify(rawResponse).sendError(eq(SC_BAD_REQUEST), contains("Exceeded the limit of 1 objects"));
+            assertEquals(0, body.size());
+            assertEquals(1, budget.getExceeded());
+        }
+
+        /**
+         * Items of an array share the budget.
+         */
+        public void testTruncatedArray() throws Exception {
+            ExportBudget budget = new ExportBudget().withMaxObjects(2).withTruncation(true);
+            response.serveExposedBean(request, new Bean[] {new Bean("x"), new Bean("y"), new Bean("z")},
+                    new ExportConfig().withBudget(budget).withClassAttribute(ClassAttributeBehaviour.NONE));
+            assertEquals("[{\"value\":\"x\"},{\"value\":\"y\"},{\"_truncated\":\"Exceeded the limit of 2 objects\"}]", body.toString("UTF-8"));
+            verify(rawResponse, never()).sendError(anyInt(), anyString());
+        }
+
+        /**
+         * An {@link Iterable} is split into lines with NDJSON, but isn't taken for an array otherwise.
+         */
+        public void testIterable() throws Exception {
+            ExportBudget budget = new ExportBudget().withMaxObjects(2).withTruncation(true);
+            response.serveExposedBean(request, Arrays.asList(new Bean("x"), new Bean("y"), new Bean("z")),
+                    new ExportConfig().withFlavor(Flavor.NDJSON).withBudget(budget).withClassAttribute(ClassAttributeBehaviour.NONE));
+            assertEquals("{\"value\":\"x\"}\n{\"value\":\"y\"}\n{\"_truncated\":\"Exceeded the limit of 2 objects\"}\n", body.toString("UTF-8"));
+
+            setUp();
+            try {
+                response.serveExposedBean(request, Arrays.asList(new Bean("x")), new ExportConfig().withFlavor(Flavor.JSON));
+                fail();
+            } catch (NotExportableException e) {
+                // as before, as it's not an @ExportedBean
+            }
+        }
+    }
+
+    public static class ServeFileTest extends AbstractStaplerTest {
+        private ByteArrayOutputStream body;
+        private File file;
+
+        @Override
+        protected void setUp() throws Exception {
+            super.setUp();
+            body = new ByteArrayOutputStream();
+            when(rawResponse.getOutputStream()).thenReturn(capture(body));
+            file = File.createTempFile("stapler", ".txt");
+            byte[] data = new byte[100000];
+            for (int i=0; i<data.length; i++)
+                data[i] = (byte)('a'+i%26);
+            FileUtils.writeByteArrayToFile(file, data);
+        }
+
+        @Override
+        protected void tearDown() throws Exception {
+            file.delete();
+            super.tearDown();
+        }
+
+        public void testFile() throws Exception {
+            response.serveFile(request, new FileInputStream(file), 0, -1, file.length(), file.getName());
+            assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), bytes()));
+            verify(rawResponse).setHeader("Content-Length", "100000");
+        }
+
+        public void testURL() throws Exception {
+            response.serveFile(request, file.toURI().toURL());
+            assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), bytes()));
+        }
+
+        public void testRange() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=70000-70009");
+            response.serveFile(request, new FileInputStream(file), 0, -1, file.length(), file.getName());
+            verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+            verify(rawResponse).setHeader("Content-Range", "bytes 70000-70009/100000");
+            assertEquals("ijklmnopqr", new String(bytes(), "US-ASCII"));
+        }
+
+        public void testSuffixRange() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=-3");
+            response.serveFile(request, new FileInputStream(file), 0, -1, file.length(), file.getName());
+            verify(rawResponse).setHeader("Content-Range", "bytes 99997-99999/100000");
+            verify(rawResponse).setHeader("Content-Length", "3");
+            assertEquals("bcd", new String(bytes(), "US-ASCII"));
+        }
+
+        /**
+         * Ranges are not compressed.
+         */
+        public void testRangeWithGzip() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=26-");
+            when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+            response.serveFile(request, file.toURI().toURL());
+            verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+            verify(rawResponse, never()).setHeader("Content-Encoding", "gzip");
+            assertTrue(Arrays.equals(Arrays.copyOfRange(FileUtils.readFileToByteArray(file), 26, 100000), bytes()));
+        }
+
+        public void testMultipleRanges() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=52-54, 0-1,2-3, -2");
+            response.serveFile(request, new FileInputStream(file), 0, -1, file.length(), file.getName());
+            assertMultipart("abcd", "abc", "cd");
+        }
+
+        /**
+         * Same with a stream that needs to be read through.
+         */
+        public void testMultipleRangesFromStream() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=52-54, 0-1,2-3, -2");
+            response.serveFile(request, new BufferedInputStream(new FileInputStream(file)), 0, -1, file.length(), file.getName());
+            assertMultipart("abcd", "abc", "cd");
+        }
+
+        private void assertMultipart(String... parts) throws Exception {
+            verify(rawResponse).setStatus(SC_PARTIAL_CONTENT);
+            ArgumentCaptor<String> contentType = ArgumentCaptor.forClass(String.class);
+            verify(rawResponse, atLeastOnce()).setContentType(contentType.capture());
+            String type = contentType.getValue();
+            String partType = contentType.getAllValues().get(0);
+            assertTrue(type, type.startsWith("multipart/byteranges; boundary="));
+            String boundary = type.substring(type.indexOf('=')+1);
+
+            StringBuilder expected = new StringBuilder();
+            String[] ranges = {"0-3", "52-54", "99998-99999"};
+            for (int i=0; i<parts.length; i++)
+                expected.append("\r\n--").append(boundary).append("\r\nContent-Type: ").append(partType)
+                        .append("\r\nContent-Range: bytes ")
+                        .append(ranges[i]).append("/100000\r\n\r\n").append(parts[i]);
+            expected.append("\r\n--").append(boundary).append("--\r\n");
+            assertEquals(expected.toString(), new String(bytes(), "US-ASCII"));
+            verify(rawResponse).setHeader("Content-Length", Integer.toString(expected.length()));
+        }
+
+        public void testUnsatisfiableRange() throws Exception {
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=100000-");
+            response.serveFile(request, new FileInputStream(file), 0, -1, file.length(), file.getName());
+            verify(rawResponse).setHeader("Content-Range", "bytes */100000");
+            verify(rawResponse).sendError(SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            assertEquals(0, bytes().length);
+        }
+
+        public void testIfRange() throws Exception {
+            long lastModified = 1500000000000L;
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=0-1");
+            when(rawRequest.getHeader("If-Range")).thenReturn(Stapler.HTTP_DATE_FORMAT.get().format(lastModified));
+            response.serveFile(request, new FileInputStream(file), lastModified, -1, file.length(), file.getName());
+            assertEquals("ab", new String(bytes(), "US-ASCII"));
+        }
+
+        /**
+         * Once modified, the whole thing is sent.
+         */
+        public void testIfRangeModified() throws Exception {
+            long lastModified = 1500000000000L;
+            when(rawRequest.getHeader("Range")).thenReturn("bytes=0-1");
+            when(rawRequest.getHeader("If-Range")).thenReturn(Stapler.HTTP_DATE_FORMAT.get().format(lastModified));
+            response.serveFile(request, new FileInputStream(file), lastModified+1000, -1, file.length(), file.getName());
+            verify(rawResponse, never()).setStatus(SC_PARTIAL_CONTENT);
+            assertEquals(100000, bytes().length);
+        }
+
+        public void testLocalizedFile() throws Exception {
+            File ja = sibling("_ja");
+            File fr = sibling("_fr");
+            try {
+                FileUtils.writeStringToFile(ja, "ja", "US-ASCII");
+                assertEquals("ja", serveLocalized(Locale.JAPAN));
+
+                // the lack of a French variant is remembered
+                assertEquals(100000, serveLocalized(Locale.FRENCH).length());
+                FileUtils.writeStringToFile(fr, "fr", "US-ASCII");
+                assertEquals(100000, serveLocalized(Locale.FRENCH).length());
+                stapler.buildResourcePaths();
+                assertEquals("fr", serveLocalized(Locale.FRENCH));
+
+                // but variants that go away are looked for again
+                ja.delete();
+                assertEquals(100000, serveLocalized(Locale.JAPAN).length());
+            } finally {
+                ja.delete();
+                fr.delete();
+            }
+        }
+
+        private File sibling(String suffix) {
+            String name = file.getName();
+            return new File(file.getParentFile(), name.substring(0, name.lastIndexOf('.'))+suffix+".txt");
+        }
+
+        private String serveLocalized(Locale locale) throws Exception {
+            body.reset();
+            when(rawRequest.getLocale()).thenReturn(locale);
+            response.serveLocalizedFile(request, file.toURI().toURL());
+            return new String(bytes(), "US-ASCII");
+        }
+
+        public void testGzip() throws Exception {
+            when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+            response.serveFile(request, file.toURI().toURL());
+            verify(rawResponse).setHeader("Content-Encoding", "gzip");
+            assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes())))));
+        }
+
+        public void testPrecompressed() throws Exception {
+            File gz = new File(file.getPath()+".gz");
+            try {
+                byte[] compressed = "not really gzip".getBytes("US-ASCII");
+                FileUtils.writeByteArrayToFile(gz, compressed);
+
+                when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+                response.servePrecompressedFile(request, file.toURI().toURL(), 0);
+                verify(rawResponse).setHeader("Content-Encoding", "gzip");
+                verify(rawResponse).setHeader("Content-Length", Integer.toString(compressed.length));
+                verify(rawResponse).addHeader("Vary", "Accept-Encoding");
+                assertTrue(Arrays.equals(compressed, bytes()));
+            } finally {
+                gz.delete();
+            }
+        }
+
+        /**
+         * Copies older than the resource are not used.
+         */
+        public void testPrecompressedStale() throws Exception {
+            File gz = new File(file.getPath()+".gz");
+            try {
+                FileUtils.writeStringToFile(gz, "not really gzip", "US-ASCII");
+                gz.setLastModified(file.lastModified()-10000);
+                when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+                response.servePrecompressedFile(request, file.toURI().toURL(), 0);
+                assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes())))));
+            } finally {
+                gz.delete();
+            }
+        }
+
+        public void testPrecompressedNotAccepted() throws Exception {
+            File gz = new File(file.getPath()+".gz");
+            try {
+                FileUtils.writeStringToFile(gz, "not really gzip", "US-ASCII");
+                response.servePrecompressedFile(request, file.toURI().toURL(), 0);
+                verify(rawResponse, never()).setHeader("Content-Encoding", "gzip");
+                verify(rawResponse).addHeader("Vary", "Accept-Encoding");
+                assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), bytes()));
+            } finally {
+                gz.delete();
+            }
+        }
+
+        /**
+         * The gzipped copy isn't even looked for if the client already has the resource.
+         */
+        public void testPrecompressedNotModified() throws Exception {
+            File gz = new File(file.getPath()+".gz");
+            try {
+                FileUtils.writeStringToFile(gz, "not really gzip", "US-ASCII");
+                when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+                when(rawRequest.getHeader("If-Modified-Since")).thenReturn(
+                        Stapler.HTTP_DATE_FORMAT.get().format(file.lastModified()+10000));
+                response.servePrecompressedFile(request, file.toURI().toURL(), 0);
+                verify(rawResponse).setStatus(SC_NOT_MODIFIED);
+                verify(rawResponse, never()).addHeader("Vary", "Accept-Encoding");
+                assertEquals(0, bytes().length);
+            } finally {
+                gz.delete();
+            }
+        }
+
+        /**
+         * Files served the usual way could be user content, where a ".gz" file next to it may be something else.
+         */
+        public void testPrecompressedOnlyWhenAsked() throws Exception {
+            File gz = new File(file.getPath()+".gz");
+            try {
+                FileUtils.writeStringToFile(gz, "not really gzip", "US-ASCII");
+                when(rawRequest.getHeader("Accept-Encoding")).thenReturn("gzip");
+                response.serveFile(request, file.toURI().toURL());
+                verify(rawResponse, never()).addHeader("Vary", "Accept-Encoding");
+                assertTrue(Arrays.equals(FileUtils.readFileToByteArray(file), IOUtils.toByteArray(new GZIPInputStream(new ByteArrayInputStream(bytes())))));
+            } finally {
+                gz.delete();
+            }
+        }
+
+        /**
+         * Files are copied in bigger chunks than other streams, and both send the same bytes.
+         */
+        public void testFileAndStreamAgree() throws Exception {
+            byte[] data = new byte[200000];
+            new Random(0).nextBytes(data);
+            FileUtils.writeByteArrayToFile(file, data);
+
+            response.serveFile(request, new FileInputStream(file), 0, -1, data.length, "data.bin");
+            assertTrue(Arrays.equals(data, bytes()));
+
+            body.reset();
+            response.serveFile(request, new BufferedInputStream(new FileInputStream(file)), 0, -1, data.length, "data.bin");
+            assertTrue(Arrays.equals(data, bytes()));
+        }
+
+        /**
+         * Compares serving a big file as such and as an arbitrary stream, into a sink that only counts.
+         * This is a benchmark rather than a test, so it's skipped unless the size is given,
+         * like {@code -DResponseImplTest.benchmarkSize=300000000}.
+         */
+        public void testThroughput() throws Exception {
+            Long size = Long.getLong("ResponseImplTest.benchmarkSize");
+            if (size==null)
+                return;
+            try (RandomAccessFile f = new RandomAccessFile(file, "rw")) {
+                f.setLength(size);
+            }
+            CountingOutputStream count = new CountingOutputStream(new NullOutputStream());
+            when(rawResponse.getOutputStream()).thenReturn(capture(count));
+
+            for (int i=0; i<5; i++) {
+                count.resetByteCount();
+                long t0 = System.nanoTime();
+                response.serveFile(request, new FileInputStream(file), 0, -1, size, "big.bin");
+                long t1 = System.nanoTime();
+                assertEquals((long)size, count.resetByteCount());
+
+                response.serveFile(request, new BufferedInputStream(new FileInputStream(file)), 0, -1, size, "big.bin");
+                long t2 = System.nanoTime();
+                assertEquals((long)size, count.resetByteCount());
+
+                System.out.printf("%dMB: %dMB/s as a file, %dMB/s as a stream%n", size>>20,
+                        size*1000/Math.max(1,t1-t0), size*1000/Math.max(1,t2-t1));
+            }
+        }
+
+        private byte[] bytes() {
+            return body.toByteArray();
+        }
+    }
+
+    @ExportedBean
+    public static class Bean {
+        @Exported
+        public final String value;
+
+        Bean(String value) {
+            this.value = value;
+        }
+    }
 }
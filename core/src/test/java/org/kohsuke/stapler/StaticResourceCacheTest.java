@@ -0,0 +1,158 @@
+package org.kohsuke.stapler;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.test.JettyTestCase;
+import org.mortbay.jetty.servlet.Context;
+import org.mortbay.jetty.servlet.ServletHolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class StaticResourceCacheTest extends JettyTestCase {
+    private static final String CSS = StringUtils.repeat("body { color: red; }\n", 20);
+
+    private File dir;
+
+    @Override
+    protected void configure(Context context) {
+        try {
+            dir = File.createTempFile("static", "dir");
+            dir.delete();
+            dir.mkdirs();
+            FileUtils.writeStringToFile(new File(dir, "style.css"), CSS, StandardCharsets.UTF_8);
+            FileUtils.writeByteArrayToFile(new File(dir, "image.png"), new byte[] {1, 2, 3, 4});
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+        context.setResourceBase(dir.getPath());
+        stapler = new Stapler();
+        context.addServlet(new ServletHolder(stapler), "/*");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testServedFromMemory() throws Exception {
+        assertEquals(CSS, get("style.css", false));
+        FileUtils.writeStringToFile(new File(dir, "style.css"), CSS.replace("red", "blue"), StandardCharsets.UTF_8);
+
+        // still the copy in memory, both compressed and not
+        assertEquals(CSS, get("style.css", true));
+        assertEquals(CSS, get("style.css", false));
+
+        stapler.buildResourcePaths();
+        assertEquals(CSS.replace("red", "blue"), get("style.css", true));
+    }
+
+    /**
+     * The gzipped copy the build left next to the resource is kept in memory as well.
+     */
+    public void testPrecompressed() throws Exception {
+        String minified = StringUtils.repeat("body{color:red}", 20);
+        GZIPOutputStream gz = new GZIPOutputStream(new FileOutputStream(new File(dir, "style.css.gz")));
+        gz.write(minified.getBytes(StandardCharsets.UTF_8));
+        gz.close();
+
+        for (int i=0; i<2; i++) {
+            assertEquals(minified, get("style.css", true));
+            assertEquals(CSS, get("style.css", false));
+            assertEquals("Accept-Encoding", open("style.css").getHeaderField("Vary"));
+        }
+    }
+
+    public void testBinary() throws Exception {
+        HttpURLConnection con = open("image.png");
+        con.setRequestProperty("Accept-Encoding", "gzip");
+        assertNull(con.getHeaderField("Content-Encoding"));
+        assertEquals(4, con.getContentLength());
+        assertEquals(4, IOUtils.toByteArray(con.getInputStream()).length);
+
+        con = open("image.png");
+        con.setRequestProperty("Range", "bytes=1-2");
+        assertEquals(206, con.getResponseCode());
+        assertEquals("bytes 1-2/4", con.getHeaderField("Content-Range"));
+        byte[] data = IOUtils.toByteArray(con.getInputStream());
+        assertEquals(2, data.length);
+        assertEquals(2, data[0]);
+    }
+
+    public void testNotModified() throws Exception {
+        HttpURLConnection con = open("style.css");
+        String lastModified = con.getHeaderField("Last-Modified");
+        assertNotNull(lastModified);
+        IOUtils.toByteArray(con.getInputStream());
+
+        con = open("style.css");
+        con.setRequestProperty("If-Modified-Since", lastModified);
+        assertEquals(304, con.getResponseCode());
+    }
+
+    /**
+     * Locales that end up with the same resource share one copy in memory.
+     */
+    public void testLocales() throws Exception {
+        FileUtils.writeStringToFile(new File(dir, "style_ja.css"), CSS.replace("red", "green"), StandardCharsets.UTF_8);
+        stapler.buildResourcePaths();
+        assertEquals(CSS, get("style.css", "en"));
+        assertEquals(CSS.replace("red", "green"), get("style.css", "ja"));
+        FileUtils.writeStringToFile(new File(dir, "style.css"), CSS.replace("red", "blue"), StandardCharsets.UTF_8);
+
+        // a locale that hasn't been seen yet still finds the copy already in memory
+        assertEquals(CSS, get("style.css", "fr"));
+        assertEquals(CSS, get("style.css", "en"));
+        assertEquals(CSS.replace("red", "green"), get("style.css", "ja"));
+    }
+
+    public void testEviction() throws Exception {
+        StaticResourceCache cache = new StaticResourceCache(100);
+        assertTrue(cache.accepts(6));
+        assertFalse(cache.accepts(7));
+        assertFalse(cache.accepts(-1));
+
+        for (int i=0; i<5; i++)
+            cache.put("r"+i, new StaticResourceCache.Entry(new byte[30], false, "image/png", 0, "r.png"));
+        assertNull(cache.get("r0"));
+        assertNull(cache.get("r1"));
+        assertNotNull(cache.get("r2"));
+
+        // the least recently used one goes first
+        cache.put("r5", new StaticResourceCache.Entry(new byte[30], false, "image/png", 0, "r.png"));
+        assertNotNull(cache.get("r2"));
+        assertNull(cache.get("r3"));
+    }
+
+    private String get(String path, String language) throws IOException {
+        HttpURLConnection con = open(path);
+        con.setRequestProperty("Accept-Language", language);
+        assertEquals(200, con.getResponseCode());
+        return IOUtils.toString(con.getInputStream(), StandardCharsets.UTF_8);
+    }
+
+    private HttpURLConnection open(String path) throws IOException {
+        return (HttpURLConnection) new URL(url, path).openConnection();
+    }
+
+    private String get(String path, boolean gzip) throws IOException {
+        HttpURLConnection con = open(path);
+        if (gzip)
+            con.setRequestProperty("Accept-Encoding", "gzip");
+        assertEquals(200, con.getResponseCode());
+        assertEquals(gzip ? "gzip" : null, con.getHeaderField("Content-Encoding"));
+        InputStream in = con.getInputStream();
+        if (gzip)
+            in = new GZIPInputStream(in);
+        return IOUtils.toString(in, StandardCharsets.UTF_8);
+    }
+}
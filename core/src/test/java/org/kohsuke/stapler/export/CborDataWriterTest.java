@@ -0,0 +1,194 @@
+package org.kohsuke.stapler.export;
+
+import net.sf.json.JSONObject;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CborDataWriterTest {
+    private ExportConfig config = new ExportConfig().withClassAttribute(ClassAttributeBehaviour.IF_NEEDED.simple());
+
+    @ExportedBean
+    public static class Values {
+        @Exported public String s = "caf\u00e9 \uD834\uDD1E";
+        @Exported public int small = 23;
+        @Exported public int medium = 1000;
+        @Exported public long big = Long.MAX_VALUE;
+        @Exported public int negative = -500;
+        @Exported public long min = Long.MIN_VALUE;
+        @Exported public double d = 1.5;
+        @Exported public boolean b = true;
+        @Exported public String nothing = null;
+        @Exported public List<String> list = Arrays.asList("a", "b");
+        @Exported public Map<String,Integer> map = new LinkedHashMap<String,Integer>();
+        @Exported public Nested nested = new Nested();
+        {
+            map.put("x", 1);
+        }
+    }
+
+    @ExportedBean
+    public static class Nested {
+        @Exported public String name = "nested";
+    }
+
+    /**
+     * Decodes to the same thing as JSON does.
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        Values v = new Values();
+        Object decoded = decode(cbor(v, TreePruner.DEFAULT));
+        assertEquals(JSONObject.fromObject(json(v, TreePruner.DEFAULT)), JSONObject.fromObject(decoded));
+        assertEquals(Long.MIN_VALUE, ((Map) decoded).get("min"));
+        assertEquals("caf\u00e9 \uD834\uDD1E", ((Map) decoded).get("s"));
+
+        TreePruner pruner = new NamedPathPruner("nested[*],list{1,}");
+        assertEquals("{_class=Values, list=[b], nested={name=nested}}", decode(cbor(v, pruner)).toString());
+    }
+
+    @Test
+    public void encoding() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataWriter w = Flavor.CBOR.createDataWriter(null, out, config);
+        w.startArray();
+        w.valuePrimitive(0);
+        w.valuePrimitive(24);
+        w.valuePrimitive(-1);
+        w.valuePrimitive(65536);
+        w.value("a");
+        w.valueNull();
+        w.endArray();
+        assertArrayEquals(new byte[] {(byte)0x9F, 0x00, 0x18, 0x18, 0x20, 0x1A, 0x00, 0x01, 0x00, 0x00, 0x61, 0x61, (byte)0xF6, (byte)0xFF},
+                out.toByteArray());
+    }
+
+    /**
+     * Elements that fail are rolled back, as with the text formats.
+     */
+    @Test
+    public void failingElementsAreSkipped() throws Exception {
+        ModelTest.Container c = new ModelTest.Container();
+        TreePruner pruner = new NamedPathPruner("items[name,nested[name]]");
+        assertEquals("{items=[{name=a, nested={name=x}}, {name=c, nested={name=x}}]}",
+                decode(cbor(c, pruner, new ExportConfig().withClassAttribute(ClassAttributeBehaviour.NONE))).toString());
+    }
+
+    @Test
+    public void smallerThanJson() throws Exception {
+        List<Values> list = new ArrayList<Values>();
+        for (int i=0; i<1000; i++)
+            list.add(new Values());
+        Holder h = new Holder(list);
+        TreePruner pruner = new TreePruner.ByDepth(-10);
+
+        byte[] cbor = cbor(h, pruner);
+        byte[] json = json(h, pruner).getBytes(StandardCharsets.UTF_8);
+        assertTrue(cbor.length+" vs "+json.length, cbor.length < json.length);
+    }
+
+    @ExportedBean
+    public static class Holder {
+        @Exported public final List<Values> values;
+        Holder(List<Values> values) {
+            this.values = values;
+        }
+    }
+
+    private byte[] cbor(Object bean, TreePruner pruner) throws IOException {
+        return cbor(bean, pruner, config);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private byte[] cbor(Object bean, TreePruner pruner, ExportConfig config) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Model model = new ModelBuilder().get(bean.getClass());
+        model.writeTo(bean, pruner, Flavor.CBOR.createDataWriter(bean, out, config));
+        return out.toByteArray();
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private String json(Object bean, TreePruner pruner) throws IOException {
+        StringWriter w = new StringWriter();
+        Model model = new ModelBuilder().get(bean.getClass());
+        model.writeTo(bean, pruner, Flavor.JSON.createDataWriter(bean, w, config));
+        return w.toString();
+    }
+
+    /**
+     * Decodes the subset of CBOR that {@link CborDataWriter} produces.
+     */
+    static Object decode(byte[] data) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        Object o = decodeItem(in);
+        assertEquals("trailing bytes", -1, in.read());
+        return o;
+    }
+
+    private static final Object BREAK = new Object();
+
+    private static Object decodeItem(DataInputStream in) throws IOException {
+        int initial = in.readUnsignedByte();
+        int major = initial>>5;
+        int info = initial&0x1F;
+        switch (major) {
+        case 0:
+            return argument(in, info);
+        case 1:
+            return -1-argument(in, info);
+        case 3:
+            byte[] b = new byte[(int) argument(in, info)];
+            in.readFully(b);
+            return new String(b, StandardCharsets.UTF_8);
+        case 4: {
+            assertEquals("indefinite length", 31, info);
+            List<Object> l = new ArrayList<Object>();
+            for (Object o; (o = decodeItem(in)) != BREAK; )
+                l.add(o);
+            return l;
+        }
+        case 5: {
+            assertEquals("indefinite length", 31, info);
+            Map<String,Object> m = new LinkedHashMap<String,Object>();
+            for (Object k; (k = decodeItem(in)) != BREAK; )
+                m.put((String) k, decodeItem(in));
+            return m;
+        }
+        case 7:
+            switch (info) {
+            case 20: return false;
+            case 21: return true;
+            case 22: return null;
+            case 26: return Float.intBitsToFloat(in.readInt());
+            case 27: return Double.longBitsToDouble(in.readLong());
+            case 31: return BREAK;
+            }
+        }
+        throw new IOException("Unexpected initial byte "+Integer.toHexString(initial));
+    }
+
+    private static long argument(InputStream in, int info) throws IOException {
+        if (info<24)
+            return info;
+        int n = 1<<(info-24);
+        long v = 0;
+        for (int i=0; i<n; i++)
+            v = (v<<8)|in.read();
+        return v;
+    }
+}
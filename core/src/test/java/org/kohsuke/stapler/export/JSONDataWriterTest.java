@@ -1,9 +1,13 @@
 package org.kohsuke.stapler.export;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
@@ -12,9 +16,22 @@ public class JSONDataWriterTest {
     private ExportConfig config = new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.IF_NEEDED.simple());
 
     private <T> String serialize(T bean, Class<T> clazz) throws IOException {
+        return serialize(bean, clazz, config);
+    }
+
+    /**
+     * Serializes through both the {@link java.io.Writer} and the {@link java.io.OutputStream} variants,
+     * which must produce the same output.
+     */
+    private <T> String serialize(T bean, Class<T> clazz, ExportConfig config) throws IOException {
         StringWriter w = new StringWriter();
         Model<T> model = new ModelBuilder().get(clazz);
         model.writeTo(bean, Flavor.JSON.createDataWriter(bean, w, config));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.writeTo(bean, Flavor.JSON.createDataWriter(bean, out, config));
+        assertEquals(w.toString(), new String(out.toByteArray(), StandardCharsets.UTF_8));
+
         return w.toString();
     }
 
@@ -80,6 +97,34 @@ public class JSONDataWriterTest {
         }
     }
 
+    @Test
+    public void testValues() throws Exception {
+        assertEquals("{\"_class\":\"Values\",\"chars\":\"caf\u00e9 \u3042 \\\"\\\\ \\u007f\",\"flag\":true,\"map\":{\"k\":\"v\",\"n\":null},"
+                        + "\"nothing\":null,\"numbers\":[0,-1,2147483647,-9223372036854775808,1.5,7]}",
+                serialize(new Values(), Values.class));
+    }
+
+    @Test
+    public void testPrettyPrint() throws Exception {
+        String s = serialize(new Values(), Values.class, config.withPrettyPrint(true));
+        assertEquals("{\n  \"_class\" : \"Values\",\n  \"chars\" : \"", s.substring(0, 38));
+        s = serialize(new Supers(new Sub(), new Broken(), new Sub2()), Supers.class, config.withPrettyPrint(true));
+        assertEquals(-1, s.indexOf("oops"));
+    }
+
+    @ExportedBean
+    public static class Values {
+        @Exported public String chars = "caf\u00e9 \u3042 \"\\ \u007f";
+        @Exported public boolean flag = true;
+        @Exported public Map<String,String> map = new LinkedHashMap<>();
+        @Exported public Object[] numbers = {0, -1, Integer.MAX_VALUE, Long.MIN_VALUE, 1.5, (short)7};
+        @Exported public String nothing;
+        {
+            map.put("k", "v");
+            map.put("n", null);
+        }
+    }
+
     @ExportedBean
     public static class Encoded {
         @Exported
@@ -26,13 +26,19 @@ package org.kohsuke.stapler.export;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Assert;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class ModelTest {
     private ExportConfig config = new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.ALWAYS.simple());
@@ -176,6 +182,360 @@ public class ModelTest {
         builder.get(ExportableBean.class).writeTo(b,Flavor.JSON.createDataWriter(b, writer, config));
     }
 
+    //===========================================
+
+    /**
+     * Elements that fail to export are skipped, without leaving any partial output behind.
+     */
+    @Test
+    public void failingElementsAreSkipped() throws IOException {
+        Container c = new Container();
+        Model<Container> model = builder.get(Container.class);
+        TreePruner pruner = new NamedPathPruner("items[name,nested[name]]");
+        ExportConfig config = new ExportConfig().withClassAttribute(ClassAttributeBehaviour.NONE);
+
+        StringWriter sw = new StringWriter();
+        model.writeTo(c, pruner, Flavor.JSON.createDataWriter(c, sw, config));
+        assertEquals("{'items':[{'name':'a','nested':{'name':'x'}},{'name':'c','nested':{'name':'x'}}]}", sw.toString().replace('"','\''));
+
+        sw = new StringWriter();
+        model.writeTo(c, pruner, Flavor.XML.createDataWriter(c, sw, config));
+        assertEquals("<container><item><name>a</name><nested><name>x</name></nested></item><item><name>c</name><nested><name>x</name></nested></item></container>", sw.toString());
+
+        // pretty printing state needs to be restored, too
+        config = config.withPrettyPrint(true);
+        sw = new StringWriter();
+        model.writeTo(c, pruner, Flavor.JSON.createDataWriter(c, sw, config));
+        String pretty = sw.toString();
+        sw = new StringWriter();
+        c.items = Arrays.asList(new Item("a"), new Item("c"));
+        model.writeTo(c, pruner, Flavor.JSON.createDataWriter(c, sw, config));
+        assertEquals(sw.toString(), pretty);
+    }
+
+    @Test
+    public void staticMembers() throws IOException {
+        StringWriter sw = new StringWriter();
+        WithStatics o = new WithStatics();
+        builder.get(WithStatics.class).writeTo(o, TreePruner.DEFAULT, Flavor.JSON.createDataWriter(o, sw, config));
+        assertEquals("{'_class':'WithStatics','count':3,'instance':[1,2],'version':'1.0'}", sw.toString().replace('"','\''));
+    }
+
+    @ExportedBean
+    public static class WithStatics {
+        @Exported
+        public static String version = "1.0";
+        @Exported
+        public int[] instance = {1, 2};
+        @Exported
+        public static int getCount() {
+            return 3;
+        }
+    }
+
+    /**
+     * With a prefetcher, a collection is loaded with one call to the backend instead of one per element.
+     */
+    @Test
+    public void prefetch() throws IOException {
+        final Backend backend = new Backend();
+        Shelf shelf = new Shelf(backend, 50);
+        Model<Shelf> model = builder.get(Shelf.class);
+        TreePruner pruner = new NamedPathPruner("records[id,title]{10,20}");
+
+        StringWriter sw = new StringWriter();
+        model.writeTo(shelf, pruner, Flavor.JSON.createDataWriter(shelf, sw, config));
+        String expected = sw.toString();
+        assertEquals(10, backend.loads);
+        assertEquals(0, backend.batches);
+
+        backend.loads = 0;
+        final List<String> properties = new ArrayList<String>();
+        ExportConfig config = new ExportConfig().withFlavor(Flavor.JSON).withClassAttribute(ClassAttributeBehaviour.ALWAYS.simple())
+                .withPrefetcher(new ExportPrefetcher() {
+                    @Override
+                    public <T> void prefetch(Model<T> model, List<? extends T> items, List<Property> props, ExportConfig config) {
+                        for (Property p : props)
+                            properties.add(p.name);
+                        List<Integer> ids = new ArrayList<Integer>();
+                        for (Object r : items)
+                            ids.add(((Record) r).id);
+                        backend.loadAll(ids);
+                    }
+                });
+        sw = new StringWriter();
+        model.writeTo(shelf, pruner, Flavor.JSON.createDataWriter(shelf, sw, config));
+        assertEquals(expected, sw.toString());
+        assertEquals(0, backend.loads);
+        assertEquals(1, backend.batches);
+        assertEquals(Arrays.asList("id", "title"), properties);
+
+        // the same goes for any pruner
+        backend.loads = backend.batches = 0;
+        properties.clear();
+        model.writeTo(shelf, new TreePruner.ByDepth(0), Flavor.JSON.createDataWriter(shelf, new StringWriter(), config));
+        assertEquals(0, backend.loads);
+        assertEquals(1, backend.batches);
+        assertEquals(Arrays.asList("id", "title"), properties);
+    }
+
+    static class Backend {
+        final Map<Integer,String> cache = new HashMap<Integer,String>();
+        int loads, batches;
+
+        String load(int id) {
+            String title = cache.get(id);
+            if (title == null) {
+                loads++;
+                title = "record #" + id;
+            }
+            return title;
+        }
+
+        void loadAll(Collection<Integer> ids) {
+            batches++;
+            for (int id : ids)
+                cache.put(id, "record #" + id);
+        }
+    }
+
+    @ExportedBean
+    public static class Shelf {
+        @Exported
+        public final List<Record> records = new ArrayList<Record>();
+
+        Shelf(Backend backend, int n) {
+            for (int i = 0; i < n; i++)
+                records.add(new Record(backend, i));
+        }
+    }
+
+    @ExportedBean
+    public static class Record {
+        private final Backend backend;
+        @Exported
+        public final int id;
+
+        Record(Backend backend, int id) {
+            this.backend = backend;
+            this.id = id;
+        }
+
+        @Exported
+        public String getTitle() {
+            return backend.load(id);
+        }
+    }
+
+    @Test
+    public void cache() throws IOException {
+        ExportCache cache = new ExportCache(100);   // the limit is per segment, so a small cache may evict early
+        ExportConfig config = new ExportConfig().withCache(cache);
+        Build b = new Build(7);
+        Model<Build> model = builder.get(Build.class);
+        TreePruner pruner = new NamedPathPruner("number,artifacts[name]");
+
+        StringWriter sw = new StringWriter();
+        model.writeTo(b, pruner, Flavor.JSON.createDataWriter(b, sw, config));
+        assertEquals("{'_class':'org.kohsuke.stapler.export.ModelTest$Build','artifacts':[{'name':'a.jar'}],'number':7}", sw.toString().replace('"','\''));
+        assertEquals(1, b.calls);
+        assertEquals(0, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // the same data in other flavors and formatting, straight from the cache
+        for (Flavor f : new Flavor[] {Flavor.JSON, Flavor.XML, Flavor.PYTHON}) {
+            for (boolean pretty : new boolean[] {false, true}) {
+                sw = new StringWriter();
+                model.writeTo(b, pruner, f.createDataWriter(b, sw, new ExportConfig().withFlavor(f).withPrettyPrint(pretty)));
+                String expected = sw.toString();
+                sw = new StringWriter();
+                model.writeTo(b, pruner, f.createDataWriter(b, sw, new ExportConfig().withFlavor(f).withPrettyPrint(pretty).withCache(cache)));
+                assertEquals(expected, sw.toString());
+            }
+        }
+        assertEquals(7, b.calls);
+        assertEquals(6, cache.getHits());
+        assertEquals(1, cache.size());
+
+        // anything else that affects the output is a miss
+        model.writeTo(b, new NamedPathPruner("number"), Flavor.JSON.createDataWriter(b, new StringWriter(), config));
+        model.writeTo(b, TreePruner.DEFAULT, Flavor.JSON.createDataWriter(b, new StringWriter(), config));
+        model.writeTo(new Build(8), pruner, Flavor.JSON.createDataWriter(b, new StringWriter(), config));
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.size());
+        b.token = null;
+        model.writeTo(b, pruner, Flavor.JSON.createDataWriter(b, new StringWriter(), config));
+        assertEquals(4, cache.getMisses());
+        assertEquals(6, cache.getHits());
+    }
+
+    @Test
+    public void cacheRefusesLargeEntries() throws IOException {
+        Build b = new Build(7);
+        Model<Build> model = builder.get(Build.class);
+        TreePruner pruner = new NamedPathPruner("number,artifacts[name]");
+
+        ExportCache cache = new ExportCache(10, 5);
+        for (int i=0; i<2; i++)
+            model.writeTo(b, pruner, Flavor.JSON.createDataWriter(b, new StringWriter(), new ExportConfig().withCache(cache)));
+        assertEquals(2, b.calls);
+        assertEquals(0, cache.size());
+
+        cache = new ExportCache(10, 100);
+        for (int i=0; i<2; i++)
+            model.writeTo(b, pruner, Flavor.JSON.createDataWriter(b, new StringWriter(), new ExportConfig().withCache(cache)));
+        assertEquals(3, b.calls);
+        assertEquals(1, cache.size());
+    }
+
+    /**
+     * What fails is skipped the same way whether the object is written as usual, recorded for the cache, or replayed.
+     */
+    @Test
+    public void cacheSkipIfFail() throws IOException {
+        ExportCache cache = new ExportCache(10);
+        FlakyBuild b = new FlakyBuild();
+        Model<FlakyBuild> model = builder.get(FlakyBuild.class);
+        TreePruner pruner = new NamedPathPruner("broken,number");
+
+        for (ExportCache c : new ExportCache[] {null, cache, cache}) {
+            ExportConfig config = new ExportConfig().withClassAttribute(ClassAttributeBehaviour.NONE).withSkipIfFail(true).withCache(c);
+            StringWriter sw = new StringWriter();
+            model.writeTo(b, pruner, Flavor.JSON.createDataWriter(b, sw, config));
+            assertEquals("{'number':7}", sw.toString().replace('"','\''));
+        }
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    @Test
+    public void budget() throws IOException {
+        ExportBudget budget = new ExportBudget().withMaxObjects(3).withTruncation(true);
+        ExportConfig config = new ExportConfig().withClassAttribute(ClassAttributeBehaviour.NONE).withBudget(budget);
+        Container c = new Container();
+        Model<Container> model = builder.get(Container.class);
+
+        StringWriter sw = new StringWriter();
+        model.writeTo(c, new NamedPathPruner("items[name]"), Flavor.JSON.createDataWriter(c, sw, config));
+        assertEquals("{'items':[{'name':'a'},{'name':'b'}],'_truncated':'Exceeded the limit of 3 objects'}", sw.toString().replace('"','\''));
+        assertEquals(1, budget.getExceeded());
+
+        // the item that was half way is rolled back, and exceeding the budget isn't one of the failures skipIfFail skips
+        sw = new StringWriter();
+        model.writeTo(c, new NamedPathPruner("items[name]"), Flavor.JSON.createDataWriter(c, sw, config.withSkipIfFail(true)));
+        assertEquals("{'items':[{'name':'a'},{'name':'b'}],'_truncated':'Exceeded the limit of 3 objects'}", sw.toString().replace('"','\''));
+
+        assertEquals(2, budget.getExceeded());
+
+        // the output limit
+        budget = new ExportBudget().withMaxOutput(30).withTruncation(true);
+        sw = new StringWriter();
+        model.writeTo(c, new NamedPathPruner("items[name]"), Flavor.JSON.createDataWriter(c, sw, config.withSkipIfFail(false).withBudget(budget)));
+        assertEquals("{'items':[{'name':'a'}],'_truncated':'Exceeded the output limit of 30 characters'}", sw.toString().replace('"','\''));
+        assertEquals(1, budget.getExceeded());
+
+        // or fail altogether, which is counted separately
+        ExportBudget failing = budget.withTruncation(false);
+        assertTrue(budget.isTruncation());
+        config.withBudget(failing);
+        try {
+            model.writeTo(c, new NamedPathPruner("items[name]"), Flavor.JSON.createDataWriter(c, new StringWriter(), config.withSkipIfFail(true)));
+            fail();
+        } catch (ExportBudgetExceededException x) {
+            assertEquals("Exceeded the output limit of 30 characters", x.getMessage());
+        }
+        assertEquals(1, failing.getExceeded());
+        assertEquals(1, budget.getExceeded());
+
+        // within budget, the output is as usual
+        budget = failing.withMaxOutput(1000).withMaxTime(1, TimeUnit.MINUTES);
+        sw = new StringWriter();
+        model.writeTo(c, new NamedPathPruner("items[name]"), Flavor.JSON.createDataWriter(c, sw, config.withBudget(budget)));
+        assertEquals("{'items':[{'name':'a'},{'name':'b'},{'name':'c'}]}", sw.toString().replace('"','\''));
+        assertEquals(0, budget.getExceeded());
+    }
+
+    @ExportedBean
+    public static class Build implements CacheableExportedBean {
+        final int number;
+        Object token;
+        int calls;
+
+        Build(int number) {
+            this.number = number;
+            this.token = number;
+        }
+
+        @Exported
+        public int getNumber() {
+            calls++;
+            return number;
+        }
+
+        @Exported
+        public List<Artifact> getArtifacts() {
+            return Arrays.asList(new Artifact());
+        }
+
+        @Override
+        public Object getExportCacheToken() {
+            return token;
+        }
+    }
+
+    @ExportedBean
+    public static class FlakyBuild implements CacheableExportedBean {
+        @Exported
+        public List<Artifact> getBroken() {
+            throw new IllegalStateException("broken");
+        }
+
+        @Exported
+        public int getNumber() {
+            return 7;
+        }
+
+        @Override
+        public Object getExportCacheToken() {
+            return "7";
+        }
+    }
+
+    @ExportedBean
+    public static class Artifact {
+        @Exported
+        public String getName() {
+            return "a.jar";
+        }
+    }
+
+    @ExportedBean
+    public static class Container {
+        @Exported
+        public List<Item> items = Arrays.asList(new Item("a"), new Item("b"), new Item("c"));
+    }
+
+    @ExportedBean
+    public static class Item {
+        private final String name;
+
+        Item(String name) {
+            this.name = name;
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        @Exported
+        public Item getNested() {
+            if (name.equals("b"))
+                throw new IllegalStateException("can't export b");
+            return name.equals("x") ? null : new Item("x");
+        }
+    }
+
     @ExportedBean
     public static class ExportableBean{
         @Exported
@@ -1,6 +1,7 @@
 package org.kohsuke.stapler.export;
 
 import java.io.StringWriter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -65,6 +66,64 @@ public class NamedPathPrunerTest extends TestCase {
         assertResult("{_class:Vhew,jobs:[{name:job97},{name:job98},{name:job99}]}", v, "jobs[name]{97,}");
     }
     
+    public void testRangeAware() throws Exception {
+        Pheed f = new Pheed();
+        assertResult("{_class:Pheed,jobs:[{name:job3},{name:job4}]}", f, "jobs[name]{3,5}");
+        assertEquals(3, f.requested.min);
+        assertEquals(5, f.requested.max);
+
+        assertResult("{_class:Pheed,jobs:[{displayName:aaa,name:job0},{displayName:aaa,name:job1}]}", f, "jobs[name,displayName]{,2}");
+        assertEquals(0, f.requested.min);
+        assertEquals(2, f.requested.max);
+    }
+
+    @ExportedBean public static class Pheed {
+        Range requested;
+        @Exported public RangeAware<Jhob> getJobs() {
+            return (range, pruner) -> {
+                requested = range;
+                List<Jhob> jobs = new ArrayList<Jhob>();
+                for (int i=range.min; i<range.max; i++)
+                    jobs.add(new Jhob("job"+i,"aaa","bbb"));
+                return jobs;
+            };
+        }
+    }
+
+    public void testInheritanceAndMerge() throws Exception {
+        Dherived d = new Dherived();
+        assertResult("{_class:Dherived,x:1,name:derived}", d, "name,x");
+        assertResult("{_class:Dherived,name:derived}", d, "name,extra[x]");
+        assertResult("{_class:Dherived,trash:base,x:1,y:2,name:derived}", d, "*");
+    }
+
+    public void testCache() throws Exception {
+        assertSame(NamedPathPruner.parseCached("jobs[name]{,3}"), NamedPathPruner.parseCached("jobs[name]{,3}"));
+        assertNotSame(NamedPathPruner.parseCached("jobs[name]{,3}"), NamedPathPruner.parseCached("jobs[name]{,4}"));
+
+        Model<Vhew> model = new ModelBuilder().get(Vhew.class);
+        NamedPathPruner p = new NamedPathPruner("name,jobs[name]");
+        Model.Selection[] plan = p.select(model);
+        assertSame(plan, new NamedPathPruner("name,jobs[name]").select(model));
+        assertEquals(2, plan.length);
+        assertEquals("jobs", plan[0].property.name);
+        assertEquals("name", plan[1].property.name);
+        assertSame(plan[0].child, p.accept(null, plan[0].property));
+    }
+
+    @ExportedBean public static class Bhase {
+        @Exported public String getName() {return "base";}
+        @Exported public String getTrash() {return "base";}
+    }
+    public static class Dherived extends Bhase {
+        @Exported @Override public String getName() {return "derived";}
+        @Exported(merge=true) public Xtra getExtra() {return new Xtra();}
+    }
+    @ExportedBean public static class Xtra {
+        @Exported public int x = 1;
+        @Exported public int y = 2;
+    }
+
     @ExportedBean public static class Stuff {
         @Exported public Jhob[] jobs;
         @Exported public List<Vhew> views;
@@ -100,6 +159,17 @@ public class NamedPathPrunerTest extends TestCase {
         StringWriter w = new StringWriter();
         model.writeTo(bean, new NamedPathPruner(spec), Flavor.JSON.createDataWriter(bean, w, config));
         assertEquals(expected, w.toString().replace("\\\"", "").replace("\"", ""));
+
+        // same result without the precomputed selection
+        final TreePruner p = new NamedPathPruner(spec);
+        StringWriter w2 = new StringWriter();
+        model.writeTo(bean, new TreePruner() {
+            @Override
+            public TreePruner accept(Object node, Property prop) {
+                return p.accept(node, prop);
+            }
+        }, Flavor.JSON.createDataWriter(bean, w2, config));
+        assertEquals(w.toString(), w2.toString());
     }
     
 }
@@ -0,0 +1,95 @@
+package org.kohsuke.stapler.export;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+public class NdjsonDataWriterTest {
+    private ExportConfig config = new ExportConfig().withClassAttribute(ClassAttributeBehaviour.NONE).withSkipIfFail(true);
+
+    /**
+     * Items of the top-level array go on their own lines, and the tree applies to each of them.
+     */
+    @Test
+    public void arrayIsSplitIntoLines() throws Exception {
+        ModelTest.Item[] items = {new ModelTest.Item("a"), new ModelTest.Item("b"), new ModelTest.Item("c")};
+        assertEquals("{\"name\":\"a\",\"nested\":{\"name\":\"x\"}}\n" +
+                "{\"name\":\"b\"}\n" +
+                "{\"name\":\"c\",\"nested\":{\"name\":\"x\"}}\n",
+                write(items, new NamedPathPruner("name,nested[name]")));
+        assertEquals("{\"name\":\"a\"}\n{\"name\":\"b\"}\n{\"name\":\"c\"}\n",
+                write(items, new NamedPathPruner("name")));
+        assertEquals("", write(new Object[0], TreePruner.DEFAULT));
+    }
+
+    /**
+     * Anything else is just one line, nested arrays included.
+     */
+    @Test
+    public void singleBean() throws Exception {
+        assertEquals("{\"items\":[{\"name\":\"a\"},{\"name\":\"b\"},{\"name\":\"c\"}]}\n",
+                write(new ModelTest.Container(), new NamedPathPruner("items[name]")));
+    }
+
+    @Test
+    public void writer() throws Exception {
+        StringWriter w = new StringWriter();
+        DataWriter dw = Flavor.NDJSON.createDataWriter(null, w, config.withPrettyPrint(true));
+        dw.startArray();
+        dw.value("café");
+        dw.startArray();
+        dw.valuePrimitive(1);
+        dw.valuePrimitive(2);
+        dw.endArray();
+        dw.endArray();
+        assertEquals("\"café\"\n[1,2]\n", w.toString());
+    }
+
+    /**
+     * A line that's marked is only flushed once it's committed, as it's not written to the stream until then.
+     */
+    @Test
+    public void flushAfterCommit() throws Exception {
+        final StringBuilder flushed = new StringBuilder();
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public void flush() {
+                flushed.setLength(0);
+                flushed.append(new String(toByteArray(), StandardCharsets.UTF_8));
+            }
+        };
+        DataWriter dw = Flavor.NDJSON.createDataWriter(null, out, config);
+        int mark = dw.mark();
+        dw.startObject();
+        dw.name("name");
+        dw.value("a");
+        dw.endObject();
+        assertEquals("", flushed.toString());
+        dw.commit(mark);
+        assertEquals("{\"name\":\"a\"}\n", flushed.toString());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private String write(Object bean, TreePruner pruner) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        DataWriter dw = Flavor.NDJSON.createDataWriter(bean, out, config);
+        ModelBuilder builder = new ModelBuilder();
+        if (bean instanceof Object[]) {
+            dw.startArray();
+            for (Object item : (Object[]) bean) {
+                Model model = builder.get(item.getClass());
+                model.writeTo(item, pruner, dw);
+            }
+            dw.endArray();
+        } else {
+            Model model = builder.get(bean.getClass());
+            model.writeTo(bean, pruner, dw);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
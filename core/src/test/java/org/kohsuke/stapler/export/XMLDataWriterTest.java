@@ -193,4 +193,51 @@ public class XMLDataWriterTest extends TestCase {
         assertEquals("<arraysWithPluralProperties _class='ArraysWithPluralProperties'><bars>foo</bars><category>general</category><category>specific</category><foos>foo</foos><style>ornate</style><style>plain</style></arraysWithPluralProperties>",
                 serialize(new ArraysWithPluralProperties(), ArraysWithPluralProperties.class));
     }
+
+    public void testEscape() throws Exception {
+        X x = new X();
+        x.a = "<a> && \"b\"";
+        assertEquals("<x _class='X'><a>&lt;a&gt; &amp;&amp; \"b\"</a><c>cval</c></x>", serialize(x, X.class));
+    }
+
+    public void testPrettyPrint() throws Exception {
+        config = config.withPrettyPrint(true);
+        String s = serialize(new Job(), Job.class);
+        assertEquals("<job _class='Job'>\n" +
+                "  <action _class='ParameterAction'>\n" +
+                "    <parameter>\n" +
+                "      <names>foo</names>\n" +
+                "      <values>bar</values>\n" +
+                "    </parameter>\n" +
+                "  </action>\n" +
+                "  <action _class='CauseAction'>\n" +
+                "    <cause>xyz</cause>\n" +
+                "  </action>\n" +
+                "  <name>job1</name>\n" +
+                "</job>", s);
+        assertValidXML(s);
+    }
+
+    /**
+     * Rolled back properties don't leave blank lines behind, and empty objects stay on one line.
+     */
+    public void testPrettyPrintRollback() throws Exception {
+        config = config.withPrettyPrint(true).withSkipIfFail(true).withClassAttribute(ClassAttributeBehaviour.NONE);
+        StringWriter w = new StringWriter();
+        ModelTest.Container c = new ModelTest.Container();
+        new ModelBuilder().get(ModelTest.Container.class).writeTo(c, new NamedPathPruner("items[nested[name]]"), Flavor.XML.createDataWriter(c, w, config));
+        assertEquals("<container>\n" +
+                "  <item>\n" +
+                "    <nested>\n" +
+                "      <name>x</name>\n" +
+                "    </nested>\n" +
+                "  </item>\n" +
+                "  <item></item>\n" +
+                "  <item>\n" +
+                "    <nested>\n" +
+                "      <name>x</name>\n" +
+                "    </nested>\n" +
+                "  </item>\n" +
+                "</container>", w.toString());
+    }
 }
@@ -0,0 +1,21 @@
+package org.kohsuke.stapler.json;
+
+import junit.framework.TestCase;
+import org.apache.commons.lang.StringUtils;
+import org.kohsuke.stapler.HttpResponses.HttpResponseException;
+
+import java.io.StringReader;
+
+public class JsonBodyReaderTest extends TestCase {
+    public void testMaxLength() throws Exception {
+        String s = "{\"a\":\""+StringUtils.repeat("x", 10000)+"\"}";
+        assertEquals(s, JsonBodyReader.read(new StringReader(s), s.length()));
+        assertEquals(s, JsonBodyReader.read(new StringReader(s), 0));
+        try {
+            JsonBodyReader.read(new StringReader(s), s.length()-1);
+            fail();
+        } catch (HttpResponseException e) {
+            // expected
+        }
+    }
+}
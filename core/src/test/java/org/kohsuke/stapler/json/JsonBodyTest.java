@@ -4,8 +4,12 @@ import com.gargoylesoftware.htmlunit.HttpMethod;
 import com.gargoylesoftware.htmlunit.WebClient;
 import com.gargoylesoftware.htmlunit.WebRequestSettings;
 import com.gargoylesoftware.htmlunit.WebResponse;
+import java.io.BufferedReader;
+import java.io.StringReader;
 import java.net.URL;
 import static junit.framework.TestCase.assertEquals;
+import static org.mockito.Mockito.*;
+import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.test.JettyTestCase;
 
 public class JsonBodyTest extends JettyTestCase {
@@ -24,6 +28,18 @@ public class JsonBodyTest extends JettyTestCase {
         assertEquals("{\"x\":20,\"y\":10}", response.getContentAsString());
     }
 
+    /**
+     * What json-lib accepts beyond the standard JSON is still accepted.
+     */
+    public void testLenient() throws Exception {
+        StaplerRequest req = mock(StaplerRequest.class);
+        when(req.getContentType()).thenReturn("application/json");
+        when(req.getReader()).thenReturn(new BufferedReader(new StringReader("{name:'a','size':5}")));
+        Item i = (Item) new JsonBody.Handler().parse(req, null, Item.class, "i");
+        assertEquals("a", i.getName());
+        assertEquals(5, i.getSize());
+    }
+
     @JsonResponse
     public Point doDouble(@JsonBody Point p) {
         Point pt = new Point();
@@ -36,4 +52,25 @@ public class JsonBodyTest extends JettyTestCase {
         public int x, y;
     }
 
+    public static class Item {
+        private String name;
+        private int size;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public void setSize(int size) {
+            this.size = size;
+        }
+    }
+
 }
@@ -51,6 +51,13 @@ public class KlassTest {
         Assert.fail("Have not found 'doDynamic' function for FooClass");
     }
 
+    @Test
+    public void javaKlassIsCanonical() throws Exception {
+        Assert.assertSame(Klass.java(FooClass.class), Klass.java(FooClass.class));
+        Assert.assertEquals(Klass.java(FooClass.class), new Klass<Class>(FooClass.class, KlassNavigator.JAVA));
+        Assert.assertNull(Klass.java(null));
+    }
+
     private static final class FooClass {
         private int fooField;
         
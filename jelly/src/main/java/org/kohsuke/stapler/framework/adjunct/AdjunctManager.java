@@ -172,7 +172,7 @@ public class AdjunctManager {
             throw HttpResponses.error(SC_NOT_FOUND,new IllegalArgumentException("No such adjunct found: "+path));
         } else {
             long expires = MetaClass.NO_CACHE ? 0 : expiration;
-            rsp.serveFile(req,res,expires);
+            rsp.servePrecompressedFile(req,res,expires);
         }
     }
 